@@ -0,0 +1,36 @@
+package com.rufusy.microservices.api.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.util.MimeType;
+
+/**
+ * Encodings of the core service APIs and events. JSON is the default, Smile is a binary encoding of the same
+ * Jackson data model that is chosen by content type, so the same classes and annotations are used for both.
+ */
+public final class ApiCodecs {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+    public static final MimeType APPLICATION_SMILE = MimeType.valueOf(APPLICATION_SMILE_VALUE);
+
+    private ApiCodecs() {
+    }
+
+    public static ObjectMapper jsonObjectMapper() {
+        return configure(JsonMapper.builder().build());
+    }
+
+    public static ObjectMapper smileObjectMapper() {
+        return configure(SmileMapper.builder().build());
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper
+                .registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+}
@@ -0,0 +1,64 @@
+package com.rufusy.microservices.api.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Message converter for events with the content type application/x-jackson-smile.
+ * The conversion hint given by Spring Cloud Function is the generic type of the consumer, e.g. Event&lt;Integer, Product&gt;,
+ * it is used to decode the data of the event into the right class.
+ */
+public class SmileMessageConverter extends AbstractMessageConverter {
+    private final ObjectMapper mapper;
+
+    public SmileMessageConverter() {
+        this(ApiCodecs.smileObjectMapper());
+    }
+
+    public SmileMessageConverter(ObjectMapper smileMapper) {
+        super(ApiCodecs.APPLICATION_SMILE);
+        this.mapper = smileMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+
+        JavaType type = (conversionHint instanceof Type hint)
+                ? mapper.getTypeFactory().constructType(hint)
+                : mapper.getTypeFactory().constructType(targetClass);
+
+        try {
+            return mapper.readValue(payload, type);
+        } catch (IOException ex) {
+            throw new MessageConversionException(message, "Could not decode Smile payload: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        if (payload instanceof byte[]) {
+            return payload;
+        }
+
+        try {
+            return mapper.writeValueAsBytes(payload);
+        } catch (IOException ex) {
+            throw new MessageConversionException("Could not encode Smile payload: " + ex.getMessage(), ex);
+        }
+    }
+}
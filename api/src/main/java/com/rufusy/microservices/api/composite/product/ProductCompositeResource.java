@@ -7,8 +7,11 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @SecurityRequirement(name = "security_auth")
 @Tag(name = "ProductComposite", description = "REST API for composite product information")
 public interface ProductCompositeResource {
@@ -38,6 +41,27 @@ public interface ProductCompositeResource {
             @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent
     );
 
+    /**
+     * Sample usage:
+     * curl $HOST:PORT/product-composite?ids=1,2,3
+     *
+     * @param productIds ids of the products
+     * @return the composite products that were found, streamed as newline delimited JSON
+     */
+    @Operation(
+            summary = "${api.product-composite.get-composite-products.description}",
+            description = "${api.product-composite.get-composite-products.notes}"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(
+            value = "/product-composite",
+            produces = "application/x-ndjson")
+    Flux<ProductAggregate> getProducts(@RequestParam(value = "ids") List<Integer> productIds);
+
     /**
      * Sample usage
      * curl -X POST $HOST:$PORT/product-composite \
@@ -1,8 +1,11 @@
 package com.rufusy.microservices.api.core.product;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ProductResource {
     /**
      * Sample usage:
@@ -13,13 +16,26 @@ public interface ProductResource {
      */
     @GetMapping(
             value = "/product/{productId}",
-            produces = "application/json")
+            produces = {"application/json", "application/x-jackson-smile"})
     Mono<Product> getProduct(
             @PathVariable int productId,
             @RequestParam(value = "delay", required = false, defaultValue = "0") int delay,
             @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent
     );
 
+    /**
+     * Sample usage:
+     * curl $HOST:$PORT/product?productIds=1,2,3
+     *
+     * @param productIds ids of the products
+     * @return the products that were found, streamed as newline delimited JSON
+     */
+    @GetMapping(
+            value = "/product",
+            params = "productIds",
+            produces = {"application/x-ndjson", "application/stream+x-jackson-smile"})
+    Flux<Product> getProducts(@RequestParam(value = "productIds") List<Integer> productIds);
+
     /**
      * Sample usage:
      * curl -X POST $HOST:$PORT/product \
@@ -31,8 +47,8 @@ public interface ProductResource {
      */
     @PostMapping(
             value = "/product",
-            consumes = "application/json",
-            produces = "application/json")
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
     Mono<Product> createProduct(@RequestBody Product body);
 
     /**
@@ -4,18 +4,40 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface RecommendationResource {
     /**
      * Sample usage:
      * curl $HOST:$PORT/recommendation?productId=1
+     * curl $HOST:$PORT/recommendation?productId=1&afterId=100&limit=50 -H "Accept: application/x-ndjson"
      *
      * @param productId id of the product
-     * @return Recommendations of the product
+     * @param afterId   keyset cursor, only recommendations with a recommendationId greater than afterId are returned
+     * @param limit     max number of recommendations to return, 0 gives the server side max page size, app.pagination.maxPageSize
+     *                  (1000 by default), a larger limit is rejected with 422
+     * @return Recommendations of the product ordered by recommendationId, streamed as newline delimited JSON if requested
+     */
+    @GetMapping(
+            value = "/recommendation",
+            produces = {"application/json", "application/x-ndjson", "application/x-jackson-smile", "application/stream+x-jackson-smile"})
+    Flux<Recommendation> getRecommendations(
+            @RequestParam(value = "productId") int productId,
+            @RequestParam(value = "afterId", required = false, defaultValue = "0") int afterId,
+            @RequestParam(value = "limit", required = false, defaultValue = "0") int limit);
+
+    /**
+     * Sample usage:
+     * curl $HOST:$PORT/recommendation?productIds=1,2,3
+     *
+     * @param productIds ids of the products
+     * @return Recommendations of the products, streamed as newline delimited JSON
      */
     @GetMapping(
             value = "/recommendation",
-            produces = "application/json")
-    Flux<Recommendation> getRecommendations(@RequestParam(value = "productId") int productId);
+            params = "productIds",
+            produces = {"application/x-ndjson", "application/stream+x-jackson-smile"})
+    Flux<Recommendation> getRecommendationsByProductIds(@RequestParam(value = "productIds") List<Integer> productIds);
 
     /**
      * Sample usage:
@@ -28,8 +50,8 @@ public interface RecommendationResource {
      */
     @PostMapping(
             value = "/recommendation",
-            consumes = "application/json",
-            produces = "application/json")
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
     Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
 
     /**
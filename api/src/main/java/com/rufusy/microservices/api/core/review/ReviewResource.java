@@ -10,14 +10,34 @@ public interface ReviewResource {
     /**
      * Sample usage:
      * curl $HOST:$PORT/review?productId=1
+     * curl $HOST:$PORT/review?productId=1&afterId=100&limit=50 -H "Accept: application/x-ndjson"
      *
      * @param productId id of the product
-     * @return Reviews of the product
+     * @param afterId   keyset cursor, only reviews with a reviewId greater than afterId are returned
+     * @param limit     max number of reviews to return, 0 gives the server side max page size, app.pagination.maxPageSize
+     *                  (1000 by default), a larger limit is rejected with 422
+     * @return Reviews of the product ordered by reviewId, streamed as newline delimited JSON if requested
      */
     @GetMapping(
             value = "/review",
-            produces = "application/json")
-    Flux<Review> getReviews(@RequestParam(value = "productId") int productId);
+            produces = {"application/json", "application/x-ndjson", "application/x-jackson-smile", "application/stream+x-jackson-smile"})
+    Flux<Review> getReviews(
+            @RequestParam(value = "productId") int productId,
+            @RequestParam(value = "afterId", required = false, defaultValue = "0") int afterId,
+            @RequestParam(value = "limit", required = false, defaultValue = "0") int limit);
+
+    /**
+     * Sample usage:
+     * curl $HOST:$PORT/review?productIds=1,2,3
+     *
+     * @param productIds ids of the products
+     * @return Reviews of the products, streamed as newline delimited JSON
+     */
+    @GetMapping(
+            value = "/review",
+            params = "productIds",
+            produces = {"application/x-ndjson", "application/stream+x-jackson-smile"})
+    Flux<Review> getReviewsByProductIds(@RequestParam(value = "productIds") List<Integer> productIds);
 
     /**
      * Sample usage:
@@ -30,8 +50,8 @@ public interface ReviewResource {
      */
     @PostMapping(
             value = "/review",
-            consumes = "application/json",
-            produces = "application/json")
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
     Mono<Review> createReview(@RequestBody Review body);
 
     /**
@@ -0,0 +1,77 @@
+package com.rufusy.microservices.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.codec.ApiCodecs;
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.composite.product.streaming.ProductAggregateJsonWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.rufusy.microservices.composite.product.controller.ProductAggregateAssembler.createProductAggregate;
+
+/**
+ * Cost of creating the product aggregate from the responses of the core services, done once per product and request
+ * by the composite service. 20 is the default of app.aggregate.maxRecommendations and app.aggregate.maxReviews.
+ * <p>
+ * assembleAndEncode and streamJson compare the JSON response of the aggregate created by ProductAggregateAssembler
+ * with the one written by ProductAggregateJsonWriter, used when app.aggregate.streaming is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AggregationBenchmark {
+
+    @Param({"0", "3", "20", "200"})
+    public int summaries;
+
+    private Product product;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+
+    private final ObjectMapper mapper = ApiCodecs.jsonObjectMapper();
+    private final ProductAggregateJsonWriter writer = new ProductAggregateJsonWriter(mapper.getFactory());
+
+    @Setup
+    public void setUp() {
+        product = new Product(1, "Product name 1", 1, "product-7d4bc8d8f5-x2z8k/172.18.0.12:8080");
+        recommendations = IntStream.rangeClosed(1, summaries)
+                .mapToObj(i -> new Recommendation(1, i, "Author " + i, i % 5, "Content " + i, "recommendation-6c8f9b7d5-k3m2n/172.18.0.13:8080"))
+                .toList();
+        reviews = IntStream.rangeClosed(1, summaries)
+                .mapToObj(i -> new Review(1, i, "Author " + i, "Subject " + i, "Content " + i, "review-5b9f6c4d7-p4lq2/172.18.0.14:8080"))
+                .toList();
+    }
+
+    @Benchmark
+    public ProductAggregate createAggregate() {
+        return createProductAggregate(product, recommendations, reviews, "product-composite-84f5d6c9b-q7w8e/172.18.0.15:8080");
+    }
+
+    @Benchmark
+    public byte[] assembleAndEncode() throws IOException {
+        return mapper.writeValueAsBytes(createProductAggregate(product, recommendations, reviews, "product-composite-84f5d6c9b-q7w8e/172.18.0.15:8080"));
+    }
+
+    @Benchmark
+    public void streamJson(Blackhole blackhole) {
+        writer.write(product, Flux.fromIterable(recommendations), Flux.fromIterable(reviews),
+                        "product-composite-84f5d6c9b-q7w8e/172.18.0.15:8080", DefaultDataBufferFactory.sharedInstance)
+                .doOnNext(buffer -> {
+                    blackhole.consume(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast();
+    }
+}
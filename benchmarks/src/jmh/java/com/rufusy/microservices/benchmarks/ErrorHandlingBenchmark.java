@@ -0,0 +1,40 @@
+package com.rufusy.microservices.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.codec.ApiCodecs;
+import com.rufusy.microservices.api.exceptions.NotFoundException;
+import com.rufusy.microservices.util.GlobalControllerExceptionHandler;
+import com.rufusy.microservices.util.HttpErrorInfo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an error response of the core services, from creating the exception, with its stack trace,
+ * to the HttpErrorInfo created by the GlobalControllerExceptionHandler and its JSON encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ErrorHandlingBenchmark {
+    private final GlobalControllerExceptionHandler handler = new GlobalControllerExceptionHandler();
+    private final ObjectMapper mapper = ApiCodecs.jsonObjectMapper();
+    private final MockServerHttpRequest request = MockServerHttpRequest.get("/product/13").build();
+
+    @Benchmark
+    public NotFoundException createException() {
+        return new NotFoundException("No product found for productId: 13");
+    }
+
+    @Benchmark
+    public HttpErrorInfo handleException() {
+        return handler.handleNotFoundException(request, new NotFoundException("No product found for productId: 13"));
+    }
+
+    @Benchmark
+    public byte[] handleAndEncodeException() throws IOException {
+        return mapper.writeValueAsBytes(handler.handleNotFoundException(request, new NotFoundException("No product found for productId: 13")));
+    }
+}
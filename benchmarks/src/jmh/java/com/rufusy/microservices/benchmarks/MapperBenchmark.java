@@ -0,0 +1,82 @@
+package com.rufusy.microservices.benchmarks;
+
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.core.product.mapper.ProductMapper;
+import com.rufusy.microservices.core.product.persistence.ProductEntity;
+import com.rufusy.microservices.core.recommendation.mapper.RecommendationMapper;
+import com.rufusy.microservices.core.recommendation.persistence.RecommendationEntity;
+import com.rufusy.microservices.core.review.mapper.ReviewMapper;
+import com.rufusy.microservices.core.review.persistence.ReviewEntity;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of the MapStruct conversions between the API classes and the entities of the core services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapperBenchmark {
+    private static final int LIST_SIZE = 20;
+
+    private final ProductMapper productMapper = Mappers.getMapper(ProductMapper.class);
+    private final RecommendationMapper recommendationMapper = Mappers.getMapper(RecommendationMapper.class);
+    private final ReviewMapper reviewMapper = Mappers.getMapper(ReviewMapper.class);
+
+    private Product product;
+    private ProductEntity productEntity;
+    private List<RecommendationEntity> recommendationEntities;
+    private List<Recommendation> recommendations;
+    private List<ReviewEntity> reviewEntities;
+    private List<Review> reviews;
+
+    @Setup
+    public void setUp() {
+        product = new Product(1, "Product name 1", 1, "product-7d4bc8d8f5-x2z8k/172.18.0.12:8080");
+        productEntity = new ProductEntity(1, "Product name 1", 1);
+        recommendationEntities = IntStream.rangeClosed(1, LIST_SIZE)
+                .mapToObj(i -> new RecommendationEntity(1, i, "Author " + i, i % 5, "Content " + i))
+                .toList();
+        recommendations = recommendationMapper.entityListToApiList(recommendationEntities);
+        reviewEntities = IntStream.rangeClosed(1, LIST_SIZE)
+                .mapToObj(i -> new ReviewEntity(1, i, "Author " + i, "Subject " + i, "Content " + i))
+                .toList();
+        reviews = reviewMapper.entityListToApiList(reviewEntities);
+    }
+
+    @Benchmark
+    public Product productEntityToApi() {
+        return productMapper.entityToApi(productEntity);
+    }
+
+    @Benchmark
+    public ProductEntity productApiToEntity() {
+        return productMapper.apiToEntity(product);
+    }
+
+    @Benchmark
+    public List<Recommendation> recommendationEntitiesToApi() {
+        return recommendationMapper.entityListToApiList(recommendationEntities);
+    }
+
+    @Benchmark
+    public List<RecommendationEntity> recommendationsApiToEntities() {
+        return recommendationMapper.apiListToEntityList(recommendations);
+    }
+
+    @Benchmark
+    public List<Review> reviewEntitiesToApi() {
+        return reviewMapper.entityListToApiList(reviewEntities);
+    }
+
+    @Benchmark
+    public List<ReviewEntity> reviewsApiToEntities() {
+        return reviewMapper.apiListToEntityList(reviews);
+    }
+}
@@ -0,0 +1,93 @@
+package com.rufusy.microservices.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.codec.ApiCodecs;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.event.Event;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+
+/**
+ * Encode and decode cost of the events and REST payloads of the core services with JSON and Smile.
+ * The payload sizes are logged when the benchmark is set up, e.g.:
+ * ./gradlew :benchmarks:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(SerializationBenchmark.class);
+
+    @Param({"JSON", "SMILE"})
+    public String codec;
+
+    @Param({"1", "100"})
+    public int reviews;
+
+    private ObjectMapper mapper;
+    private JavaType productEventType;
+    private JavaType reviewListType;
+
+    private Event<Integer, Product> productEvent;
+    private List<Review> reviewList;
+    private byte[] productEventBytes;
+    private byte[] reviewListBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = codec.equals("SMILE") ? ApiCodecs.smileObjectMapper() : ApiCodecs.jsonObjectMapper();
+        productEventType = mapper.getTypeFactory().constructType(new TypeReference<Event<Integer, Product>>() {});
+        reviewListType = mapper.getTypeFactory().constructType(new TypeReference<List<Review>>() {});
+
+        productEvent = new Event<>(CREATE, 1, new Product(1, "Product name 1", 1, "product-7d4bc8d8f5-x2z8k/172.18.0.12:8080"));
+        reviewList = IntStream.rangeClosed(1, reviews)
+                .mapToObj(i -> new Review(1, i, "Author " + i, "Subject " + i,
+                        "Content of the review number " + i + " of the product", "review-5b9f6c4d7-p4lq2/172.18.0.14:8080"))
+                .toList();
+
+        productEventBytes = mapper.writeValueAsBytes(productEvent);
+        reviewListBytes = mapper.writeValueAsBytes(reviewList);
+
+        // Also verifies that the payloads decode to the same content
+        Event<Integer, Product> decodedEvent = mapper.readValue(productEventBytes, productEventType);
+        List<Review> decodedReviews = mapper.readValue(reviewListBytes, reviewListType);
+        if (!decodedEvent.getData().getName().equals(productEvent.getData().getName()) || decodedReviews.size() != reviews) {
+            throw new IllegalStateException("Round trip with " + codec + " failed");
+        }
+
+        LOG.info("{} payload sizes, product event: {} bytes, {} reviews: {} bytes",
+                codec, productEventBytes.length, reviews, reviewListBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeProductEvent() throws IOException {
+        return mapper.writeValueAsBytes(productEvent);
+    }
+
+    @Benchmark
+    public void decodeProductEvent(Blackhole blackhole) throws IOException {
+        blackhole.consume(mapper.<Event<Integer, Product>>readValue(productEventBytes, productEventType));
+    }
+
+    @Benchmark
+    public byte[] encodeReviews() throws IOException {
+        return mapper.writeValueAsBytes(reviewList);
+    }
+
+    @Benchmark
+    public void decodeReviews(Blackhole blackhole) throws IOException {
+        blackhole.consume(mapper.<List<Review>>readValue(reviewListBytes, reviewListType));
+    }
+}
@@ -0,0 +1,39 @@
+package com.rufusy.microservices.composite.product;
+
+import com.rufusy.microservices.util.HttpClientConnectors;
+import com.rufusy.microservices.util.HttpClientProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One tuned connection pool for all calls from the composite service to the core services,
+ * used by every WebClient created from the auto-configured WebClient.Builder.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    @Bean
+    public HttpClientConnectors.Settings coreServicesHttpClientSettings(HttpClientProperties properties) {
+        return properties.settings();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider coreServicesConnectionProvider(HttpClientConnectors.Settings coreServicesHttpClientSettings) {
+        return HttpClientConnectors.connectionProvider("core-services", coreServicesHttpClientSettings);
+    }
+
+    /**
+     * Replaces the auto-configured connector, Spring Boot applies it to the WebClient.Builder it creates.
+     */
+    @Bean
+    public ClientHttpConnector coreServicesConnector(
+            ConnectionProvider coreServicesConnectionProvider,
+            HttpClientConnectors.Settings coreServicesHttpClientSettings) {
+
+        return HttpClientConnectors.connector(coreServicesConnectionProvider, coreServicesHttpClientSettings);
+    }
+}
@@ -1,5 +1,6 @@
 package com.rufusy.microservices.composite.product;
 
+import com.rufusy.microservices.composite.product.loadbalancer.LoadBalancerConfiguration;
 import io.swagger.v3.oas.models.ExternalDocumentation;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
@@ -16,8 +17,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.messaging.SubscribableChannel;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Hooks;
 import reactor.core.scheduler.Scheduler;
@@ -26,6 +31,11 @@ import reactor.core.scheduler.Schedulers;
 @Slf4j
 @SpringBootApplication
 @ComponentScan("com.rufusy")
+@LoadBalancerClients({
+        @LoadBalancerClient(name = "product", configuration = LoadBalancerConfiguration.class),
+        @LoadBalancerClient(name = "recommendation", configuration = LoadBalancerConfiguration.class),
+        @LoadBalancerClient(name = "review", configuration = LoadBalancerConfiguration.class)
+})
 public class ProductCompositeServiceApplication {
     @Value("${api.common.version}")
     String apiVersion;
@@ -93,6 +103,11 @@ public class ProductCompositeServiceApplication {
         return Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "publish-pool");
     }
 
+    @Bean
+    public SubscribableChannel eventPublisherAcks() {
+        return new DirectChannel();
+    }
+
     @Autowired
     private ReactorLoadBalancerExchangeFilterFunction lbFunction;
 
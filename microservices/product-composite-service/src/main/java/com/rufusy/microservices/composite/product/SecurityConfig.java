@@ -35,7 +35,9 @@ public class SecurityConfig {
                         .pathMatchers(GET, "/product-composite/**").hasAuthority("SCOPE_product:read")
                         .anyExchange().authenticated()
                 )
-                .oauth2ResourceServer(resourceServer -> resourceServer.jwt(Customizer.withDefaults()));
+                .oauth2ResourceServer(resourceServer -> resourceServer.jwt(Customizer.withDefaults()))
+                // Lets the gateway cache the responses, it adds the no-store headers to the responses sent to the clients
+                .headers(headers -> headers.cache(cache -> cache.disable()));
 
         return http.build();
     }
@@ -0,0 +1,126 @@
+package com.rufusy.microservices.composite.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of assembled product aggregates, bounded by size and time to live.
+ * Entries are invalidated when the composite service publishes create or delete events for a product, and again after
+ * invalidationDelay, as the core services process the events later and a read in between may load the old aggregate.
+ * Only the cache of the replica that published the events is invalidated, other replicas serve the old aggregate for at most ttl.
+ * Aggregates that a loader completed with {@link #degraded()}, e.g. without the reviews of a failed call, are not stored.
+ */
+@Slf4j
+@Component
+public class ProductAggregateCache {
+    private static final String DEGRADED = ProductAggregateCache.class.getName() + ".degraded";
+
+    private final boolean enabled;
+    private final Cache<Integer, ProductAggregate> cache;
+    private final CircuitBreaker productCircuitBreaker;
+    private final Duration invalidationDelay;
+
+    // Bumped on every invalidation, loads that started before an invalidation are not stored
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ProductAggregateCache(
+            MeterRegistry meterRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            @Value("${app.aggregateCache.enabled:false}") boolean enabled,
+            @Value("${app.aggregateCache.maxSize:10000}") long maxSize,
+            @Value("${app.aggregateCache.ttlSeconds:30}") long ttlSeconds,
+            @Value("${app.aggregateCache.invalidationDelayMs:1000}") long invalidationDelayMs) {
+
+        this.enabled = enabled;
+        this.invalidationDelay = Duration.ofMillis(invalidationDelayMs);
+        this.productCircuitBreaker = circuitBreakerRegistry.circuitBreaker("product");
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productAggregateCache");
+        log.info("Creates a productAggregateCache, enabled = {}, maxSize = {}, ttlSeconds = {}", enabled, maxSize, ttlSeconds);
+    }
+
+    public Mono<ProductAggregate> get(int productId, Supplier<Mono<ProductAggregate>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        return Mono.defer(() -> {
+            ProductAggregate cached = cache.getIfPresent(productId);
+            if (cached != null) {
+                log.debug("Found product aggregate for productId: {} in the cache", productId);
+                return Mono.just(cached);
+            }
+
+            long invalidationsAtLoad = invalidations.get();
+            AtomicBoolean degraded = new AtomicBoolean();
+            return loader.get()
+                    .doOnNext(aggregate -> {
+                        if (degraded.get()) {
+                            log.debug("Product aggregate for productId: {} is incomplete and not cached", productId);
+                        } else {
+                            put(productId, aggregate, invalidationsAtLoad);
+                        }
+                    })
+                    .contextWrite(Context.of(DEGRADED, degraded));
+        });
+    }
+
+    /**
+     * An empty result that replaces a failed part of an aggregate, it keeps the aggregate that is being loaded out of the cache.
+     */
+    public static <T> Flux<T> degraded() {
+        return Flux.deferContextual(context -> {
+            context.<AtomicBoolean>getOrEmpty(DEGRADED).ifPresent(degraded -> degraded.set(true));
+            return Flux.empty();
+        });
+    }
+
+    public void invalidate(int productId) {
+        if (!enabled) {
+            return;
+        }
+
+        log.debug("Invalidates the cached product aggregate for productId: {}", productId);
+        evict(productId);
+        Mono.delay(invalidationDelay).subscribe(tick -> evict(productId));
+    }
+
+    private void evict(int productId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(productId);
+    }
+
+    private void put(int productId, ProductAggregate aggregate, long invalidationsAtLoad) {
+        // Don't cache fallback products, they are only valid while the circuit is open
+        if (productCircuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return;
+        }
+
+        if (invalidations.get() == invalidationsAtLoad) {
+            cache.put(productId, aggregate);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.rufusy.microservices.composite.product.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer for outgoing calls to the core services.
+ * Concurrent subscribers asking for the same (service, key) share one in-flight call,
+ * the call is removed from the in-flight map as soon as it terminates.
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Object> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestCoalescer(
+            MeterRegistry meterRegistry,
+            @Value("${app.coalescing.enabled:true}") boolean enabled) {
+
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("composite.coalescing.inflight", inFlight, Map::size)
+                .description("Number of calls to the core services currently shared by the request coalescer")
+                .register(meterRegistry);
+
+        log.info("Creates a request coalescer, enabled = {}", enabled);
+    }
+
+    public <T> Mono<T> mono(String service, Object key, Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        // share() makes the call uncancellable, so a subscriber that times out doesn't abort it for the others
+        return Mono.defer(() -> join(service, service + ":" + key,
+                onTerminate -> call.get().doFinally(signal -> onTerminate.run()).share()));
+    }
+
+    public <T> Flux<T> flux(String service, Object key, Supplier<Flux<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        // The elements are passed on as they arrive, late subscribers first get the elements emitted so far replayed.
+        // autoConnect() never cancels the call, the same as share() for single results
+        return Flux.defer(() -> join(service, service + ":" + key,
+                onTerminate -> call.get().doFinally(signal -> onTerminate.run()).replay().autoConnect()));
+    }
+
+    /**
+     * Returns the in-flight publisher for the key, or the one created by share, that runs its argument when the call terminates.
+     */
+    @SuppressWarnings("unchecked")
+    private <P> P join(String service, String key, Function<Runnable, P> share) {
+        AtomicReference<P> created = new AtomicReference<>();
+
+        P shared = (P) inFlight.computeIfAbsent(key, k -> {
+            AtomicReference<P> self = new AtomicReference<>();
+            P publisher = share.apply(() -> inFlight.remove(k, self.get()));
+            self.set(publisher);
+            created.set(publisher);
+            return publisher;
+        });
+
+        if (created.get() == null) {
+            log.debug("Collapsed a call to {} into the in-flight call for {}", service, key);
+            counter(service, "collapsed").increment();
+        } else {
+            counter(service, "issued").increment();
+        }
+
+        return shared;
+    }
+
+    private Counter counter(String service, String result) {
+        return counters.computeIfAbsent(service + ":" + result, k -> Counter.builder("composite.coalescing.calls")
+                .description("Calls to the core services, either issued or collapsed into an in-flight call")
+                .tag("service", service)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,125 @@
+package com.rufusy.microservices.composite.product.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Sheds the /product-composite requests above an adaptive concurrency limit with 503 Service Unavailable,
+ * before they fan out to the core services. Writes have a reserved share of the limit, see {@link GradientConcurrencyLimit}.
+ * The limit is only adapted to the latency of successful requests without fault injection.
+ * <p>
+ * The limit and in-flight requests are published as the composite.concurrency.limit and composite.concurrency.inflight
+ * gauges, the rejected requests as the composite.concurrency.rejected counter, tagged with the lane.
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter implements WebFilter {
+    private static final String PATH_PREFIX = "/product-composite";
+    private static final List<String> FAULT_PARAMS = List.of("delay", "faultPercent");
+
+    private final boolean enabled;
+    private final GradientConcurrencyLimit limit;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+
+    @Autowired
+    public ConcurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.concurrencyLimit.enabled:false}") boolean enabled,
+            @Value("${app.concurrencyLimit.initialLimit:20}") int initialLimit,
+            @Value("${app.concurrencyLimit.minLimit:5}") int minLimit,
+            @Value("${app.concurrencyLimit.maxLimit:500}") int maxLimit,
+            @Value("${app.concurrencyLimit.rttTolerance:1.5}") double rttTolerance,
+            @Value("${app.concurrencyLimit.writeReserve:0.2}") double writeReserve) {
+
+        this.enabled = enabled;
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, rttTolerance, writeReserve);
+
+        Gauge.builder("composite.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                .description("The adaptive limit of concurrent product-composite requests")
+                .register(meterRegistry);
+        Gauge.builder("composite.concurrency.inflight", limit, GradientConcurrencyLimit::getInflight)
+                .description("The product-composite requests in progress")
+                .register(meterRegistry);
+        this.readsRejected = rejectedCounter(meterRegistry, "read");
+        this.writesRejected = rejectedCounter(meterRegistry, "write");
+
+        log.info("Creates a ConcurrencyLimitFilter, enabled = {}, initialLimit = {}, minLimit = {}, maxLimit = {}, writeReserve = {}",
+                enabled, initialLimit, minLimit, maxLimit, writeReserve);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled || !exchange.getRequest().getPath().value().startsWith(PATH_PREFIX)) {
+            return chain.filter(exchange);
+        }
+
+        HttpMethod method = exchange.getRequest().getMethod();
+        boolean write = !HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method);
+
+        int inflight = limit.tryAcquire(write);
+        if (inflight == 0) {
+            (write ? writesRejected : readsRejected).increment();
+            log.debug("Rejects {} {}, the concurrency limit {} is reached", method, exchange.getRequest().getPath(), limit.getLimit());
+            return reject(exchange.getResponse());
+        }
+
+        long start = System.nanoTime();
+        boolean faultInjected = faultInjected(exchange.getRequest());
+        return chain.filter(exchange)
+                .doFinally(signal -> limit.release(System.nanoTime() - start, inflight,
+                        !faultInjected && succeeded(signal, exchange.getResponse())));
+    }
+
+    /**
+     * Only successful requests tell how long a request takes. Errors often fail fast, cancelled requests, e.g. a closed
+     * connection, end early, and both would lower the rtt the limit is computed from. They are released without a sample.
+     */
+    private boolean succeeded(SignalType signal, ServerHttpResponse response) {
+        HttpStatusCode status = response.getStatusCode();
+        return signal == SignalType.ON_COMPLETE && (status == null || status.is2xxSuccessful());
+    }
+
+    /**
+     * The delay and faultPercent test parameters make the latency of a request unrelated to the load.
+     */
+    private boolean faultInjected(ServerHttpRequest request) {
+        MultiValueMap<String, String> params = request.getQueryParams();
+        return FAULT_PARAMS.stream()
+                .map(params::getFirst)
+                .anyMatch(value -> value != null && !value.isBlank() && !"0".equals(value));
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response) {
+        response.setStatusCode(SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    private Counter rejectedCounter(MeterRegistry meterRegistry, String lane) {
+        return Counter.builder("composite.concurrency.rejected")
+                .description("Product-composite requests rejected by the concurrency limit")
+                .tag("lane", lane)
+                .register(meterRegistry);
+    }
+}
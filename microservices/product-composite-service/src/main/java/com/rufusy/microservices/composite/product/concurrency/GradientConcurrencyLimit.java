@@ -0,0 +1,102 @@
+package com.rufusy.microservices.composite.product.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to the observed latency, a variant of the gradient algorithm of Netflix concurrency-limits.
+ * <p>
+ * The limit is multiplied by the gradient between the long term and the recent latency, so it shrinks when requests
+ * get slower than usual and grows by the square root of the limit, the allowed queue, while the latency stays the same.
+ * Reads may only use the part of the limit that is not reserved for writes, so writes are admitted while reads are shed.
+ */
+public class GradientConcurrencyLimit {
+    private static final double SHORT_RTT_ALPHA = 0.2;
+    private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1);
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double writeReserve;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    /**
+     * @param rttTolerance how much slower than the long term latency the recent latency may get before the limit shrinks
+     * @param writeReserve the share of the limit that only writes may use
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double writeReserve) {
+        this.estimatedLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.writeReserve = writeReserve;
+    }
+
+    /**
+     * Admits a request if the in-flight requests of its lane are below the limit.
+     *
+     * @return the in-flight requests including this one, or 0 if the request is rejected
+     */
+    public int tryAcquire(boolean write) {
+        int laneLimit = write ? getLimit() : Math.max(1, (int) (getLimit() * (1 - writeReserve)));
+        while (true) {
+            int current = inflight.get();
+            if (current >= laneLimit) {
+                return 0;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and, if sampled, updates the limit with its latency.
+     *
+     * @param inflightAtStart the value returned by tryAcquire
+     */
+    public void release(long rttNanos, int inflightAtStart, boolean sample) {
+        inflight.decrementAndGet();
+        if (sample) {
+            update(rttNanos, inflightAtStart);
+        }
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_RTT_ALPHA;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_ALPHA;
+
+        // After a period of high latency the long term latency recovers faster than its average would
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double limit = estimatedLimit;
+
+        // The limit is not in use, the latency says nothing about it
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,67 @@
+package com.rufusy.microservices.composite.product.controller;
+
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
+import com.rufusy.microservices.api.composite.product.RecommendationSummary;
+import com.rufusy.microservices.api.composite.product.ReviewSummary;
+import com.rufusy.microservices.api.composite.product.ServiceAddresses;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+
+import java.util.List;
+
+/**
+ * Creates the product aggregate from the responses of the core services, called once per product by the composite controller.
+ */
+public final class ProductAggregateAssembler {
+
+    private ProductAggregateAssembler() {
+    }
+
+    public static ProductAggregate createProductAggregate(
+            Product product,
+            List<Recommendation> recommendations,
+            List<Review> reviews,
+            String serviceAddress) {
+
+        // setup product info
+        int productId = product.getProductId();
+        String name = product.getName();
+        int weight = product.getWeight();
+
+        // copy summary recommendation info, if present
+        List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null : recommendations.stream()
+                .map(r -> RecommendationSummary.builder()
+                        .recommendationId(r.getRecommendationId())
+                        .author(r.getAuthor())
+                        .rate(r.getRate())
+                        .content(r.getContent())
+                        .build()
+                ).toList();
+
+        // copy summary review info, if present
+        List<ReviewSummary> reviewSummaries = (reviews == null) ? null : reviews.stream()
+                .map(r -> ReviewSummary.builder()
+                        .reviewId(r.getReviewId())
+                        .author(r.getAuthor())
+                        .subject(r.getSubject())
+                        .content(r.getContent())
+                        .build()
+                ).toList();
+
+        // Create info regarding the involved microservices
+        String productAddress = product.getServiceAddress();
+        String reviewAddress = (reviews != null && reviews.size() > 0) ? reviews.get(0).getServiceAddress() : "";
+        String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
+        ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
+
+        return ProductAggregate.builder()
+                .productId(productId)
+                .name(name)
+                .weight(weight)
+                .recommendations(recommendationSummaries)
+                .reviews(reviewSummaries)
+                .serviceAddresses(serviceAddresses)
+                .build();
+    }
+}
@@ -4,42 +4,120 @@ import com.rufusy.microservices.api.composite.product.*;
 import com.rufusy.microservices.api.core.product.Product;
 import com.rufusy.microservices.api.core.recommendation.Recommendation;
 import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.composite.product.cache.ProductAggregateCache;
 import com.rufusy.microservices.util.ServiceUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.logging.Level;
 
+import static com.rufusy.microservices.composite.product.controller.ProductAggregateAssembler.createProductAggregate;
+import static java.util.stream.Collectors.groupingBy;
+
 @Slf4j
 @RestController
 public class ProductCompositeController implements ProductCompositeResource {
     private final ServiceUtil serviceUtil;
     private final ProductCompositeIntegration integration;
+    private final ProductAggregateCache aggregateCache;
+    private final int maxBatchSize;
+    private final int chunkSize;
+    private final int maxConcurrentChunks;
+    private final int maxRecommendations;
+    private final int maxReviews;
 
     @Autowired
-    public ProductCompositeController(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+    public ProductCompositeController(
+            ServiceUtil serviceUtil,
+            ProductCompositeIntegration integration,
+            ProductAggregateCache aggregateCache,
+            @Value("${app.batch.maxProductIds:100}") int maxBatchSize,
+            @Value("${app.batch.chunkSize:20}") int chunkSize,
+            @Value("${app.batch.maxConcurrentChunks:2}") int maxConcurrentChunks,
+            @Value("${app.aggregate.maxRecommendations:20}") int maxRecommendations,
+            @Value("${app.aggregate.maxReviews:20}") int maxReviews) {
+
         this.serviceUtil = serviceUtil;
         this.integration = integration;
+        this.aggregateCache = aggregateCache;
+        this.maxBatchSize = maxBatchSize;
+        this.chunkSize = chunkSize;
+        this.maxConcurrentChunks = maxConcurrentChunks;
+        this.maxRecommendations = maxRecommendations;
+        this.maxReviews = maxReviews;
     }
 
     @Override
     public Mono<ProductAggregate> getProduct(int productId, int delay, int faultPercent) {
         log.info("Will get composite product info for product.id={}", productId);
 
+        // Requests that inject delays or faults are used for testing and are never served from the cache
+        if (delay == 0 && faultPercent == 0) {
+            return aggregateCache.get(productId, () -> getProductAggregate(productId, delay, faultPercent));
+        }
+
+        return getProductAggregate(productId, delay, faultPercent);
+    }
+
+    private Mono<ProductAggregate> getProductAggregate(int productId, int delay, int faultPercent) {
         return Mono.zip(values -> createProductAggregate(
                 (Product) values[0], (List<Recommendation>) values[1], (List<Review>) values[2], serviceUtil.getServiceAddress()
                         ),
                         integration.getProduct(productId, delay, faultPercent),
-                        integration.getRecommendations(productId).cast(Recommendation.class).collectList(),
-                        integration.getReviews(productId).cast(Review.class).collectList())
+                        // Only the first page is requested, the core services never send more than the top-N of the aggregate
+                        integration.getRecommendations(productId, 0, maxRecommendations).cast(Recommendation.class).collectList(),
+                        integration.getReviews(productId, 0, maxReviews).cast(Review.class).collectList())
                 .doOnError(ex -> log.warn("getCompositeProduct failed: {}", ex.toString()))
                 .log(log.getName(), Level.FINE);
     }
 
+    @Override
+    public Flux<ProductAggregate> getProducts(List<Integer> productIds) {
+        log.info("Will get composite product info for {} products", productIds.size());
+
+        if (productIds.isEmpty() || productIds.size() > maxBatchSize) {
+            throw new InvalidInputException("Expected between 1 and " + maxBatchSize + " productIds, got: " + productIds.size());
+        }
+
+        List<Integer> distinctProductIds = productIds.stream().distinct().toList();
+        String serviceAddress = serviceUtil.getServiceAddress();
+
+        // The products are split into chunks as they arrive, the recommendations and reviews of a chunk are fetched
+        // with one call per core service and its aggregates are emitted, in order, without waiting for the rest of the batch
+        return integration.getProducts(distinctProductIds)
+                .buffer(chunkSize)
+                .flatMapSequential(products -> getProductAggregates(products, serviceAddress), maxConcurrentChunks)
+                .doOnError(ex -> log.warn("getCompositeProducts failed: {}", ex.toString()))
+                .log(log.getName(), Level.FINE);
+    }
+
+    private Flux<ProductAggregate> getProductAggregates(List<Product> products, String serviceAddress) {
+        List<Integer> productIds = products.stream().map(Product::getProductId).toList();
+
+        return Mono.zip(
+                        limitPerProduct(integration.getRecommendationsByProductIds(productIds), Recommendation::getProductId, maxRecommendations)
+                                .collect(groupingBy(Recommendation::getProductId)),
+                        limitPerProduct(integration.getReviewsByProductIds(productIds), Review::getProductId, maxReviews)
+                                .collect(groupingBy(Review::getProductId)))
+                .flatMapIterable(summaries -> products.stream()
+                        .map(product -> createProductAggregate(
+                                product,
+                                summaries.getT1().getOrDefault(product.getProductId(), List.of()),
+                                summaries.getT2().getOrDefault(product.getProductId(), List.of()),
+                                serviceAddress))
+                        .toList());
+    }
+
     @Override
     public Mono<Void> createProduct(ProductAggregate body) {
         try {
@@ -72,6 +150,7 @@ public class ProductCompositeController implements ProductCompositeResource {
 
             return Mono.zip(r -> "", monoList.toArray(new Mono[0]))
                     .doOnError(ex -> log.warn("createCompositeProduct failed: {}", ex.toString()))
+                    .doFinally(signal -> aggregateCache.invalidate(body.getProductId()))
                     .then();
 
         } catch (RuntimeException re) {
@@ -91,6 +170,7 @@ public class ProductCompositeController implements ProductCompositeResource {
                             integration.deleteRecommendations(productId),
                             integration.deleteReview(productId))
                     .doOnError(ex -> log.warn("delete failed: {}", ex.toString()))
+                    .doFinally(signal -> aggregateCache.invalidate(productId))
                     .log(log.getName(), Level.FINE)
                     .then();
 
@@ -100,50 +180,13 @@ public class ProductCompositeController implements ProductCompositeResource {
         }
     }
 
-    private ProductAggregate createProductAggregate(
-            Product product,
-            List<Recommendation> recommendations,
-            List<Review> reviews,
-            String serviceAddress) {
-
-        // setup product info
-        int productId = product.getProductId();
-        String name = product.getName();
-        int weight = product.getWeight();
-
-        // copy summary recommendation info, if present
-        List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null : recommendations.stream()
-                .map(r -> RecommendationSummary.builder()
-                        .recommendationId(r.getRecommendationId())
-                        .author(r.getAuthor())
-                        .rate(r.getRate())
-                        .content(r.getContent())
-                        .build()
-                ).toList();
-
-        // copy summary review info, if present
-        List<ReviewSummary> reviewSummaries = (reviews == null) ? null : reviews.stream()
-                .map(r -> ReviewSummary.builder()
-                        .reviewId(r.getReviewId())
-                        .author(r.getAuthor())
-                        .subject(r.getSubject())
-                        .content(r.getContent())
-                        .build()
-                ).toList();
-
-        // Create info regarding the involved microservices
-        String productAddress = product.getServiceAddress();
-        String reviewAddress = (reviews != null && reviews.size() > 0) ? reviews.get(0).getServiceAddress() : "";
-        String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
-        ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
-
-        return ProductAggregate.builder()
-                .productId(productId)
-                .name(name)
-                .weight(weight)
-                .recommendations(recommendationSummaries)
-                .reviews(reviewSummaries)
-                .serviceAddresses(serviceAddresses)
-                .build();
+    /**
+     * Keeps the first maxPerProduct elements of each product, the rest of the stream is dropped as it arrives instead of being collected.
+     */
+    private <T> Flux<T> limitPerProduct(Flux<T> elements, Function<T, Integer> productId, int maxPerProduct) {
+        return Flux.defer(() -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            return elements.filter(e -> counts.merge(productId.apply(e), 1, Integer::sum) <= maxPerProduct);
+        });
     }
 }
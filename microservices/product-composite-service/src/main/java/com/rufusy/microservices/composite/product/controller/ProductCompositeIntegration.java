@@ -1,6 +1,7 @@
 package com.rufusy.microservices.composite.product.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.codec.ApiCodecs;
 import com.rufusy.microservices.api.core.product.Product;
 import com.rufusy.microservices.api.core.product.ProductResource;
 import com.rufusy.microservices.api.core.recommendation.Recommendation;
@@ -8,9 +9,12 @@ import com.rufusy.microservices.api.core.recommendation.RecommendationResource;
 import com.rufusy.microservices.api.core.review.Review;
 import com.rufusy.microservices.api.core.review.ReviewResource;
 import com.rufusy.microservices.api.event.Event;
-import com.rufusy.microservices.api.exceptions.EventProcessingException;
 import com.rufusy.microservices.api.exceptions.InvalidInputException;
 import com.rufusy.microservices.api.exceptions.NotFoundException;
+import com.rufusy.microservices.composite.product.cache.ProductAggregateCache;
+import com.rufusy.microservices.composite.product.coalescing.RequestCoalescer;
+import com.rufusy.microservices.composite.product.hedging.HedgedRequests;
+import com.rufusy.microservices.composite.product.messaging.EventPublisher;
 import com.rufusy.microservices.util.HttpErrorInfo;
 import com.rufusy.microservices.util.ServiceUtil;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
@@ -19,36 +23,47 @@ import io.github.resilience4j.retry.annotation.Retry;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.MessageDeliveryException;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Objects;
 
 import static com.rufusy.microservices.api.event.Event.Type.CREATE;
 import static com.rufusy.microservices.api.event.Event.Type.DELETE;
 import static java.util.logging.Level.FINE;
+import static java.util.stream.Collectors.joining;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @Slf4j
 @Component
 public class ProductCompositeIntegration implements ProductResource, RecommendationResource, ReviewResource {
+
+    /**
+     * Encoding of the responses from the core services, SMILE is a binary encoding of the same Jackson data model as JSON.
+     */
+    public enum Serialization { JSON, SMILE }
+
     private final ObjectMapper mapper;
-    private final StreamBridge streamBridge;
-    private final Scheduler publishEventScheduler;
+    private final ObjectMapper smileMapper = ApiCodecs.smileObjectMapper();
+    private final EventPublisher eventPublisher;
     private final WebClient webClient;
     private final ServiceUtil serviceUtil;
+    private final RequestCoalescer coalescer;
+    private final HedgedRequests hedgedRequests;
+    private final WebClient instanceWebClient;
+    private final MediaType singleMediaType;
+    private final MediaType streamMediaType;
 
     private static final String PRODUCT_SERVICE_URL = "http://product";
     private static final String RECOMMENDATION_SERVICE_URL = "http://recommendation";
@@ -57,16 +72,26 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
     @Autowired
     public ProductCompositeIntegration(
             ObjectMapper mapper,
-            StreamBridge streamBridge,
-            @Qualifier("publishEventScheduler") Scheduler publishEventScheduler,
+            EventPublisher eventPublisher,
             WebClient webClient,
-            ServiceUtil serviceUtil) {
+            ServiceUtil serviceUtil,
+            RequestCoalescer coalescer,
+            HedgedRequests hedgedRequests,
+            WebClient.Builder webClientBuilder,
+            @Value("${app.serialization.rest:JSON}") Serialization restSerialization) {
 
         this.mapper = mapper;
-        this.streamBridge = streamBridge;
-        this.publishEventScheduler = publishEventScheduler;
+        this.eventPublisher = eventPublisher;
         this.webClient = webClient;
         this.serviceUtil = serviceUtil;
+        this.coalescer = coalescer;
+        this.hedgedRequests = hedgedRequests;
+        // Without the load balancer filter, used for hedged calls that are sent to an already chosen instance
+        this.instanceWebClient = webClientBuilder.build();
+
+        log.info("Requests {} responses from the core services", restSerialization);
+        this.singleMediaType = restSerialization == Serialization.SMILE ? MediaType.valueOf(ApiCodecs.APPLICATION_SMILE_VALUE) : APPLICATION_JSON;
+        this.streamMediaType = restSerialization == Serialization.SMILE ? MediaType.valueOf(ApiCodecs.APPLICATION_STREAM_SMILE_VALUE) : APPLICATION_NDJSON;
     }
 
     @CircuitBreaker(name = "product", fallbackMethod = "getProductFallbackValue")
@@ -80,12 +105,31 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
 
         log.debug("Will call getProduct API on URL: {}", url);
 
-        return webClient.get()
+        Mono<Product> call = webClient.get()
                 .uri(url)
+                .accept(singleMediaType)
                 .retrieve()
                 .bodyToMono(Product.class)
                 .log(log.getName(), FINE)
                 .onErrorMap(WebClientResponseException.class, this::handleException);
+
+        // Requests that inject delays or faults are used for testing the resilience mechanisms and are never shared or hedged
+        if (delay == 0 && faultPercent == 0) {
+            Mono<Product> hedgedCall = hedgedRequests.isEnabled() ? getProductHedged(productId) : call;
+            return coalescer.mono("product", productId, () -> hedgedCall);
+        }
+
+        return call;
+    }
+
+    private Mono<Product> getProductHedged(int productId) {
+        return hedgedRequests.execute("product", instance -> instanceWebClient.get()
+                .uri(UriComponentsBuilder.fromUri(instance.getUri()).path("/product/{productId}").build(productId))
+                .accept(singleMediaType)
+                .retrieve()
+                .bodyToMono(Product.class)
+                .log(log.getName(), FINE)
+                .onErrorMap(WebClientResponseException.class, this::handleException));
     }
 
     private Mono<Product> getProductFallbackValue(int productId, int delay, int faultPercent, CallNotPermittedException ex) {
@@ -102,40 +146,74 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
         return Mono.just(new Product(productId, "Fallback product" + productId, productId, serviceUtil.getServiceAddress()));
     }
 
+    // Not retried, a retry after a part of the stream was received would send those products again
+    @CircuitBreaker(name = "product", fallbackMethod = "getProductsFallbackValue")
+    @TimeLimiter(name = "product")
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        String url = PRODUCT_SERVICE_URL + "/product?productIds=" + toQueryValue(productIds);
+
+        log.debug("Will call getProducts API on URL: {}", url);
+
+        return webClient.get()
+                .uri(url)
+                .accept(streamMediaType)
+                .retrieve()
+                .bodyToFlux(Product.class)
+                .log(log.getName(), FINE)
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
+    private Flux<Product> getProductsFallbackValue(List<Integer> productIds, CallNotPermittedException ex) {
+
+        log.warn("Creating fail-fast fallback products for {} productIds and exception = {} ", productIds.size(), ex.toString());
+
+        // Products that are not found are left out of a batch, as by the product service
+        return Flux.fromIterable(productIds)
+                .filter(productId -> productId != 13)
+                .map(productId -> new Product(productId, "Fallback product" + productId, productId, serviceUtil.getServiceAddress()));
+    }
+
     @Override
     public Mono<Product> createProduct(Product body) {
-        return Mono.fromCallable(() -> {
-            try {
-                sendMessage("products-out-0", new Event<>(CREATE, body.getProductId(), body));
-                return body;
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler);
+        return eventPublisher.publish("products-out-0", new Event<>(CREATE, body.getProductId(), body))
+                .doOnError(ex -> log.warn("Failed to send {} event for productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage()))
+                .thenReturn(body);
     }
 
     @Override
     public Mono<Void> deleteProduct(int productId) {
-        return Mono.fromRunnable(() -> {
-            try {
-                sendMessage("products-out-0", new Event<>(DELETE, productId, null));
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for productId: {}. Error message: {}", DELETE, productId, ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler).then();
+        return eventPublisher.publish("products-out-0", new Event<>(DELETE, productId, null))
+                .doOnError(ex -> log.warn("Failed to send {} event for productId: {}. Error message: {}", DELETE, productId, ex.getMessage()));
     }
 
     @Override
-    public Flux<Recommendation> getRecommendations(int productId) {
-        String url = RECOMMENDATION_SERVICE_URL + "/recommendation?productId=" + productId;
+    public Flux<Recommendation> getRecommendations(int productId, int afterId, int limit) {
+        String url = RECOMMENDATION_SERVICE_URL + "/recommendation?productId=" + productId + "&afterId=" + afterId + "&limit=" + limit;
 
         log.debug("Will call getRecommendations API on URL: {}", url);
 
+        // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses,
+        // per subscriber of a coalesced call, so that none of them caches the partial aggregate
+        return coalescer.flux("recommendation", productId + ":" + afterId + ":" + limit, () -> webClient.get()
+                        .uri(url)
+                        .accept(streamMediaType)
+                        .retrieve()
+                        .bodyToFlux(Recommendation.class)
+                        .log(log.getName(), FINE))
+                .onErrorResume(error -> ProductAggregateCache.degraded());
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsByProductIds(List<Integer> productIds) {
+        String url = RECOMMENDATION_SERVICE_URL + "/recommendation?productIds=" + toQueryValue(productIds);
+
+        log.debug("Will call getRecommendationsByProductIds API on URL: {}", url);
+
         // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
         return webClient.get()
                 .uri(url)
+                .accept(streamMediaType)
                 .retrieve()
                 .bodyToFlux(Recommendation.class)
                 .log(log.getName(), FINE)
@@ -144,38 +222,44 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
 
     @Override
     public Mono<Recommendation> createRecommendation(Recommendation body) {
-        return Mono.fromCallable(() -> {
-            try {
-                sendMessage("recommendations-out-0", new Event<>(CREATE, body.getProductId(), body));
-                return body;
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for recommendations under productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler);
+        return eventPublisher.publish("recommendations-out-0", new Event<>(CREATE, body.getProductId(), body))
+                .doOnError(ex -> log.warn("Failed to send {} event for recommendations under productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage()))
+                .thenReturn(body);
     }
 
     @Override
     public Mono<Void> deleteRecommendations(int productId) {
-        return Mono.fromRunnable(() -> {
-            try {
-                sendMessage("recommendations-out-0", new Event<>(DELETE, productId, null));
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for recommendations under productId: {}. Error message: {}", DELETE, productId, ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler).then();
+        return eventPublisher.publish("recommendations-out-0", new Event<>(DELETE, productId, null))
+                .doOnError(ex -> log.warn("Failed to send {} event for recommendations under productId: {}. Error message: {}", DELETE, productId, ex.getMessage()));
     }
 
     @Override
-    public Flux<Review> getReviews(int productId) {
-        String url = REVIEW_SERVICE_URL + "/review?productId=" + productId;
+    public Flux<Review> getReviews(int productId, int afterId, int limit) {
+        String url = REVIEW_SERVICE_URL + "/review?productId=" + productId + "&afterId=" + afterId + "&limit=" + limit;
 
         log.debug("Will call getReviews API on URL: {}", url);
 
+        // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses,
+        // per subscriber of a coalesced call, so that none of them caches the partial aggregate
+        return coalescer.flux("review", productId + ":" + afterId + ":" + limit, () -> webClient.get()
+                        .uri(url)
+                        .accept(streamMediaType)
+                        .retrieve()
+                        .bodyToFlux(Review.class)
+                        .log(log.getName(), FINE))
+                .onErrorResume(error -> ProductAggregateCache.degraded());
+    }
+
+    @Override
+    public Flux<Review> getReviewsByProductIds(List<Integer> productIds) {
+        String url = REVIEW_SERVICE_URL + "/review?productIds=" + toQueryValue(productIds);
+
+        log.debug("Will call getReviewsByProductIds API on URL: {}", url);
+
         // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
         return webClient.get()
                 .uri(url)
+                .accept(streamMediaType)
                 .retrieve()
                 .bodyToFlux(Review.class)
                 .log(log.getName(), FINE)
@@ -184,35 +268,19 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
 
     @Override
     public Mono<Review> createReview(Review body) {
-        return Mono.fromCallable(() -> {
-            try {
-                sendMessage("reviews-out-0", new Event<>(CREATE, body.getProductId(), body));
-                return body;
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for reviews under productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler);
+        return eventPublisher.publish("reviews-out-0", new Event<>(CREATE, body.getProductId(), body))
+                .doOnError(ex -> log.warn("Failed to send {} event for reviews under productId: {}. Error message: {}", CREATE, body.getProductId(), ex.getMessage()))
+                .thenReturn(body);
     }
 
     @Override
     public Mono<Void> deleteReview(int productId) {
-        return Mono.fromRunnable(() -> {
-            try {
-                sendMessage("reviews-out-0", new Event<>(DELETE, productId, null));
-            } catch (MessageDeliveryException ex) {
-                log.warn("Failed to send {} event for reviews under productId: {}. Error message: {}", DELETE, productId, ex.getMessage());
-                throw new EventProcessingException(ex.getMessage());
-            }
-        }).subscribeOn(publishEventScheduler).then();
+        return eventPublisher.publish("reviews-out-0", new Event<>(DELETE, productId, null))
+                .doOnError(ex -> log.warn("Failed to send {} event for reviews under productId: {}. Error message: {}", DELETE, productId, ex.getMessage()));
     }
 
-    private void sendMessage(String bindingName, Event<?, ?> event) {
-        log.debug("Sending a {} message to {}", event.getEventType(), bindingName);
-        Message<? extends Event<?, ?>> message = MessageBuilder.withPayload(event)
-                .setHeader("partitionKey", event.getKey())
-                .build();
-        streamBridge.send(bindingName, message);
+    private String toQueryValue(List<Integer> productIds) {
+        return productIds.stream().map(String::valueOf).collect(joining(","));
     }
 
     private Throwable handleException(Throwable ex) {
@@ -238,7 +306,10 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
 
     private String getErrorMessage(WebClientResponseException ex) {
         try {
-            return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
+            // Error responses are encoded the same way as the response that was asked for
+            MediaType contentType = ex.getHeaders().getContentType();
+            ObjectMapper errorMapper = contentType != null && contentType.isCompatibleWith(MediaType.valueOf(ApiCodecs.APPLICATION_SMILE_VALUE)) ? smileMapper : mapper;
+            return errorMapper.readValue(ex.getResponseBodyAsByteArray(), HttpErrorInfo.class).getMessage();
         } catch (IOException e) {
             return ex.getMessage();
         }
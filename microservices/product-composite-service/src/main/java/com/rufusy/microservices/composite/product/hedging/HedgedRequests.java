@@ -0,0 +1,235 @@
+package com.rufusy.microservices.composite.product.hedging;
+
+import com.rufusy.microservices.composite.product.loadbalancer.InstanceLatencyStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hedged calls to the core services. The first call goes to a load balanced instance, if it has not answered within
+ * a percentile of the recent latencies a second call is sent to a different instance and the first answer wins.
+ * <p>
+ * Hedges are limited by a budget: each call earns budgetPercent / 100 of a hedge, and a hedge is only sent if a whole
+ * one has been earned. With budgetPercent = 10 hedging adds at most 10% to the load of the core service.
+ */
+@Slf4j
+@Component
+public class HedgedRequests {
+    private static final long TOKEN = 1000;
+    private static final int MAX_CHOOSE_ATTEMPTS = 3;
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory;
+    private final InstanceLatencyStats instanceStats;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final long minSamples;
+    private final long tokensPerCall;
+    private final long maxTokens;
+
+    private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> budgets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HedgedRequests(
+            ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+            InstanceLatencyStats instanceStats,
+            MeterRegistry meterRegistry,
+            @Value("${app.hedging.enabled:false}") boolean enabled,
+            @Value("${app.hedging.percentile:0.95}") double percentile,
+            @Value("${app.hedging.minDelayMs:20}") long minDelayMs,
+            @Value("${app.hedging.maxDelayMs:500}") long maxDelayMs,
+            @Value("${app.hedging.minSamples:100}") long minSamples,
+            @Value("${app.hedging.budgetPercent:10}") int budgetPercent,
+            @Value("${app.hedging.maxBudget:10}") int maxBudget) {
+
+        this.loadBalancerFactory = loadBalancerFactory;
+        this.instanceStats = instanceStats;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = Duration.ofMillis(minDelayMs);
+        this.maxDelay = Duration.ofMillis(maxDelayMs);
+        this.minSamples = minSamples;
+        this.tokensPerCall = TOKEN * budgetPercent / 100;
+        this.maxTokens = TOKEN * maxBudget;
+
+        log.info("Creates hedged requests, enabled = {}, percentile = {}, delay = [{}, {}] ms, budgetPercent = {}",
+                enabled, percentile, minDelayMs, maxDelayMs, budgetPercent);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param serviceId the service to call, used to choose the instances and to tag the metrics
+     * @param call      performs the call against the given instance
+     */
+    public <T> Mono<T> execute(String serviceId, Function<ServiceInstance, Mono<T>> call) {
+        return Mono.defer(() -> choose(serviceId, null)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("No instance available for service: " + serviceId)))
+                .flatMap(primaryInstance -> {
+                    earn(serviceId);
+                    Duration delay = hedgeDelay(serviceId);
+
+                    Mono<Attempt<T>> primary = timed(serviceId, primaryInstance, call)
+                            .map(value -> new Attempt<>(value, false));
+
+                    Mono<Attempt<T>> hedge = Mono.delay(delay)
+                            .then(Mono.defer(() -> startHedge(serviceId, primaryInstance, delay)))
+                            .flatMap(hedgeInstance -> timed(serviceId, hedgeInstance, call)
+                                    // A failed hedge never wins, the outcome is decided by the primary call
+                                    .onErrorResume(ex -> {
+                                        log.debug("Hedged call to {} failed: {}", hedgeInstance.getInstanceId(), ex.toString());
+                                        return Mono.never();
+                                    }))
+                            .map(value -> new Attempt<>(value, true))
+                            .switchIfEmpty(Mono.never());
+
+                    return Mono.firstWithSignal(primary, hedge)
+                            .doOnNext(attempt -> {
+                                if (attempt.hedge()) {
+                                    counter(serviceId, "hedge_won").increment();
+                                }
+                            })
+                            .map(Attempt::value);
+                }));
+    }
+
+    private Mono<ServiceInstance> startHedge(String serviceId, ServiceInstance primaryInstance, Duration delay) {
+        if (!spend(serviceId)) {
+            log.debug("No hedge budget left for {}, waits for the primary call", serviceId);
+            counter(serviceId, "budget_exhausted").increment();
+            return Mono.empty();
+        }
+
+        return choose(serviceId, primaryInstance)
+                .doOnNext(instance -> {
+                    log.debug("No answer from {} within {} ms, sends a hedged call to {}",
+                            primaryInstance.getInstanceId(), delay.toMillis(), instance.getInstanceId());
+                    counter(serviceId, "hedged").increment();
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    // Gives back the budget, no call was sent
+                    refund(serviceId);
+                    counter(serviceId, "no_other_instance").increment();
+                }));
+    }
+
+    /**
+     * Chooses an instance using the load balancer of the service, different from the excluded instance if one is given.
+     */
+    private Mono<ServiceInstance> choose(String serviceId, ServiceInstance excluded) {
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancerFactory.getInstance(serviceId);
+        if (loadBalancer == null) {
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> Mono.from(loadBalancer.choose()))
+                .filter(Response::hasServer)
+                .map(Response::getServer)
+                .filter(instance -> excluded == null || !isSameInstance(instance, excluded))
+                .repeatWhenEmpty(MAX_CHOOSE_ATTEMPTS - 1, Function.identity())
+                .onErrorResume(IllegalStateException.class, ex -> Mono.empty());
+    }
+
+    private boolean isSameInstance(ServiceInstance a, ServiceInstance b) {
+        return Objects.equals(a.getHost(), b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    /**
+     * The calls are sent to the chosen instances directly, so they are reported to the load balancer stats here.
+     */
+    private <T> Mono<T> timed(String serviceId, ServiceInstance instance, Function<ServiceInstance, Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            instanceStats.start(instance);
+            return call.apply(instance)
+                    .doOnNext(value -> latency(serviceId).record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doFinally(signal -> instanceStats.complete(instance, System.nanoTime() - start, signal == SignalType.ON_ERROR));
+        });
+    }
+
+    Duration hedgeDelay(String serviceId) {
+        Timer timer = latency(serviceId);
+        if (timer.count() < minSamples) {
+            return maxDelay;
+        }
+
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                long nanos = (long) value.value(TimeUnit.NANOSECONDS);
+                return Duration.ofNanos(Math.min(Math.max(nanos, minDelay.toNanos()), maxDelay.toNanos()));
+            }
+        }
+        return maxDelay;
+    }
+
+    private void earn(String serviceId) {
+        counter(serviceId, "calls").increment();
+        budget(serviceId).accumulateAndGet(tokensPerCall, (current, earned) -> Math.min(current + earned, maxTokens));
+    }
+
+    private boolean spend(String serviceId) {
+        AtomicLong budget = budget(serviceId);
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void refund(String serviceId) {
+        budget(serviceId).addAndGet(TOKEN);
+    }
+
+    private AtomicLong budget(String serviceId) {
+        return budgets.computeIfAbsent(serviceId, k -> new AtomicLong());
+    }
+
+    private Timer latency(String serviceId) {
+        return latencies.computeIfAbsent(serviceId, k -> Timer.builder("composite.hedging.latency")
+                .description("Latency of successful calls, the hedge delay is taken from its percentile")
+                .tag("service", serviceId)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry));
+    }
+
+    private Counter counter(String serviceId, String outcome) {
+        return counters.computeIfAbsent(serviceId + ":" + outcome, k -> Counter.builder("composite.hedging.requests")
+                .description("Calls subject to hedging by outcome, the hedge win rate is hedge_won / hedged")
+                .tag("service", serviceId)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private record Attempt<T>(T value, boolean hedge) {
+    }
+}
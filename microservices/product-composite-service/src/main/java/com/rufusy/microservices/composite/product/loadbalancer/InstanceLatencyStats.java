@@ -0,0 +1,101 @@
+package com.rufusy.microservices.composite.product.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Peak-EWMA latency and in-flight request count per service instance, shared by the load balancers of all core services.
+ * <p>
+ * A latency above the current average replaces it right away, lower latencies are blended in with a weight that depends on
+ * the time since the last update. A slow instance is avoided immediately and is only trusted again after it has answered fast
+ * for a while. The stored average decays towards zero when an instance is idle, so an avoided instance is eventually retried.
+ * <p>
+ * The stats of an instance that is not used for idleExpiryMs are dropped, e.g. after it was scaled down or moved to
+ * another address. With an idleExpiryMs well above decayTimeMs the dropped average has already decayed to about zero.
+ */
+@Slf4j
+@Component
+public class InstanceLatencyStats {
+    // Cost of an instance that has requests in flight but no latency measured yet, makes new instances take load gradually
+    private static final double UNKNOWN_LATENCY_PENALTY = TimeUnit.SECONDS.toNanos(1);
+
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final Cache<String, Stats> stats;
+
+    @Autowired
+    public InstanceLatencyStats(
+            @Value("${app.loadBalancer.decayTimeMs:10000}") long decayTimeMs,
+            @Value("${app.loadBalancer.failurePenaltyMs:1000}") long failurePenaltyMs,
+            @Value("${app.loadBalancer.idleExpiryMs:300000}") long idleExpiryMs) {
+
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeMs);
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenaltyMs);
+        this.stats = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(idleExpiryMs))
+                .build();
+
+        log.info("Creates instance latency stats, decayTimeMs = {}, failurePenaltyMs = {}, idleExpiryMs = {}",
+                decayTimeMs, failurePenaltyMs, idleExpiryMs);
+    }
+
+    public void start(ServiceInstance instance) {
+        stats(instance).inFlight.incrementAndGet();
+    }
+
+    /**
+     * @param failed failed calls count as at least failurePenaltyMs, so an instance that fails fast doesn't attract traffic
+     */
+    public void complete(ServiceInstance instance, long latencyNanos, boolean failed) {
+        Stats s = stats(instance);
+        s.inFlight.updateAndGet(n -> Math.max(n - 1, 0));
+        s.observe(failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos, System.nanoTime(), decayNanos);
+    }
+
+    /**
+     * The expected time to serve one more request, the decayed latency multiplied by the requests that are queued before it.
+     */
+    public double cost(ServiceInstance instance) {
+        Stats s = stats(instance);
+        int inFlight = s.inFlight.get();
+        double latency = s.decayed(System.nanoTime(), decayNanos);
+
+        if (latency == 0.0 && inFlight > 0) {
+            return UNKNOWN_LATENCY_PENALTY + inFlight;
+        }
+        return latency * (inFlight + 1);
+    }
+
+    private Stats stats(ServiceInstance instance) {
+        return stats.get(instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort(), k -> new Stats());
+    }
+
+    private static final class Stats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double ewma;
+        private long lastUpdate = System.nanoTime();
+
+        synchronized void observe(long latencyNanos, long now, double decayNanos) {
+            if (latencyNanos > ewma) {
+                ewma = latencyNanos;
+            } else {
+                double weight = Math.exp(-Math.max(now - lastUpdate, 0) / decayNanos);
+                ewma = ewma * weight + latencyNanos * (1 - weight);
+            }
+            lastUpdate = now;
+        }
+
+        synchronized double decayed(long now, double decayNanos) {
+            return ewma * Math.exp(-Math.max(now - lastUpdate, 0) / decayNanos);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.rufusy.microservices.composite.product.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer of a core service, created in the child context of each service listed in the @LoadBalancerClients
+ * of the application. Not annotated with @Configuration, to keep it out of the component scan of the application context.
+ * <p>
+ * The strategy is set per service with app.loadBalancer.[serviceId].strategy, PEAK_EWMA (default) or ROUND_ROBIN.
+ */
+@Slf4j
+public class LoadBalancerConfiguration {
+    public enum Strategy {
+        PEAK_EWMA,
+        ROUND_ROBIN
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            InstanceLatencyStats stats) {
+
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        Strategy strategy = environment.getProperty("app.loadBalancer." + serviceId + ".strategy", Strategy.class, Strategy.PEAK_EWMA);
+
+        log.info("Creates a {} load balancer for service: {}", strategy, serviceId);
+
+        var serviceInstanceListSupplierProvider = loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        return switch (strategy) {
+            case PEAK_EWMA -> new PeakEwmaLoadBalancer(serviceInstanceListSupplierProvider, serviceId, stats);
+            case ROUND_ROBIN -> new RoundRobinLoadBalancer(serviceInstanceListSupplierProvider, serviceId);
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package com.rufusy.microservices.composite.product.messaging;
+
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.EventProcessingException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static reactor.core.publisher.Sinks.EmitResult.FAIL_NON_SERIALIZED;
+import static reactor.core.publisher.Sinks.EmitResult.FAIL_OVERFLOW;
+
+/**
+ * Non-blocking publisher of events to the message broker.
+ * <p>
+ * Events are queued per binding in a bounded queue and sent in batches, one task on the publishEventScheduler
+ * per partitionKey in a batch instead of one task per event. Events with the same partitionKey are sent in order.
+ * When a queue is full, callers wait for room instead of being rejected.
+ * The Mono returned by {@link #publish(String, Event)} completes when the event is sent, or, if publisher
+ * confirms are enabled, when the broker has confirmed it.
+ * <p>
+ * On shutdown, the events that are still queued are sent, waiting at most closeTimeout.
+ */
+@Slf4j
+@Component
+public class EventPublisher {
+    public enum ConfirmMode { NONE, RABBIT, KAFKA }
+
+    static final String EVENT_ID_HEADER = "eventId";
+
+    private final StreamBridge streamBridge;
+    private final Scheduler publishEventScheduler;
+    private final MeterRegistry meterRegistry;
+    private final ConfirmMode confirmMode;
+    private final int queueSize;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final Duration enqueueTimeout;
+    private final Duration confirmTimeout;
+    private final Duration closeTimeout;
+
+    private final Map<String, BindingQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Sinks.Empty<Void>> pendingKafkaAcks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EventPublisher(
+            StreamBridge streamBridge,
+            @Qualifier("publishEventScheduler") Scheduler publishEventScheduler,
+            @Qualifier("eventPublisherAcks") SubscribableChannel eventPublisherAcks,
+            MeterRegistry meterRegistry,
+            @Value("${app.eventPublisher.confirmMode:NONE}") ConfirmMode confirmMode,
+            @Value("${app.eventPublisher.queueSize:1000}") int queueSize,
+            @Value("${app.eventPublisher.maxBatchSize:100}") int maxBatchSize,
+            @Value("${app.eventPublisher.maxBatchDelayMs:10}") long maxBatchDelayMs,
+            @Value("${app.eventPublisher.enqueueTimeoutMs:5000}") long enqueueTimeoutMs,
+            @Value("${app.eventPublisher.confirmTimeoutMs:5000}") long confirmTimeoutMs,
+            @Value("${app.eventPublisher.closeTimeoutMs:10000}") long closeTimeoutMs) {
+
+        this.streamBridge = streamBridge;
+        this.publishEventScheduler = publishEventScheduler;
+        this.meterRegistry = meterRegistry;
+        this.confirmMode = confirmMode;
+        this.queueSize = queueSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = Duration.ofMillis(maxBatchDelayMs);
+        this.enqueueTimeout = Duration.ofMillis(enqueueTimeoutMs);
+        this.confirmTimeout = Duration.ofMillis(confirmTimeoutMs);
+        this.closeTimeout = Duration.ofMillis(closeTimeoutMs);
+
+        // The Kafka binder sends successfully acknowledged records to this channel, see the recordMetadataChannel producer property
+        eventPublisherAcks.subscribe(this::onKafkaAck);
+
+        log.info("Creates an eventPublisher with confirmMode = {}, queueSize = {}, maxBatchSize = {}, maxBatchDelayMs = {}",
+                confirmMode, queueSize, maxBatchSize, maxBatchDelayMs);
+    }
+
+    public Mono<Void> publish(String bindingName, Event<?, ?> event) {
+        return Mono.defer(() -> {
+            PendingEvent pending = new PendingEvent(event, Sinks.empty());
+            return enqueue(bindingName, pending).then(pending.result().asMono());
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        // Completing the queues flushes the events that are still buffered
+        queues.values().forEach(queue -> queue.sink().tryEmitComplete());
+
+        long deadline = System.nanoTime() + closeTimeout.toNanos();
+        queues.forEach((bindingName, queue) -> {
+            try {
+                if (!queue.terminated().await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("Events for {} were not sent within {} ms, the remaining events are dropped", bindingName, closeTimeout.toMillis());
+                    queue.pipeline().dispose();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                queue.pipeline().dispose();
+            }
+        });
+    }
+
+    private Mono<Void> enqueue(String bindingName, PendingEvent pending) {
+        Sinks.Many<PendingEvent> queue = queues.computeIfAbsent(bindingName, this::createQueue).sink();
+
+        return Mono.<Void>defer(() -> {
+                    Sinks.EmitResult result;
+                    while ((result = queue.tryEmitNext(pending)) == FAIL_NON_SERIALIZED) {
+                        Thread.onSpinWait();
+                    }
+
+                    if (result == FAIL_OVERFLOW) {
+                        return Mono.error(new QueueFullException());
+                    }
+                    if (result.isFailure()) {
+                        return Mono.error(new EventProcessingException("Failed to queue event for " + bindingName + ": " + result));
+                    }
+                    return Mono.empty();
+                })
+                // Wait for room in the queue instead of rejecting the event
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(5))
+                        .maxBackoff(Duration.ofMillis(100))
+                        .filter(QueueFullException.class::isInstance))
+                .timeout(enqueueTimeout, Mono.error(new EventProcessingException(
+                        "Timed out waiting for room in the event queue of " + bindingName)));
+    }
+
+    private BindingQueue createQueue(String bindingName) {
+        Queue<PendingEvent> buffer = new ArrayBlockingQueue<>(queueSize);
+        Sinks.Many<PendingEvent> queue = Sinks.many().unicast().onBackpressureBuffer(buffer);
+
+        Gauge.builder("composite.events.queue.size", buffer, Queue::size)
+                .description("Number of events waiting to be published")
+                .tag("binding", bindingName)
+                .register(meterRegistry);
+        DistributionSummary batchSize = DistributionSummary.builder("composite.events.batch.size")
+                .description("Number of events published per batch")
+                .tag("binding", bindingName)
+                .register(meterRegistry);
+
+        CountDownLatch terminated = new CountDownLatch(1);
+        Disposable pipeline = queue.asFlux()
+                // Fair backpressure makes events stay in the bounded queue until a batch can be sent
+                .bufferTimeout(maxBatchSize, maxBatchDelay, true)
+                .doOnNext(batch -> batchSize.record(batch.size()))
+                // One batch at a time per binding to keep the order of events with the same partitionKey
+                .concatMap(batch -> sendBatch(bindingName, batch), 1)
+                .doFinally(signal -> terminated.countDown())
+                .subscribe();
+
+        return new BindingQueue(queue, pipeline, terminated);
+    }
+
+    private Mono<Void> sendBatch(String bindingName, List<PendingEvent> batch) {
+        Map<Object, List<PendingEvent>> byPartitionKey = new LinkedHashMap<>();
+        batch.forEach(p -> byPartitionKey.computeIfAbsent(p.event().getKey(), k -> new ArrayList<>()).add(p));
+
+        log.debug("Sending a batch of {} events with {} partition keys to {}", batch.size(), byPartitionKey.size(), bindingName);
+
+        return Flux.fromIterable(byPartitionKey.values())
+                .flatMap(events -> Mono.fromRunnable(() -> sendInOrder(bindingName, events))
+                        .subscribeOn(publishEventScheduler)
+                        .onErrorResume(ex -> {
+                            fail(bindingName, events, ex);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private void sendInOrder(String bindingName, List<PendingEvent> events) {
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                send(bindingName, events.get(i));
+            } catch (RuntimeException ex) {
+                // Don't send later events with the same key, they would overtake the failed one
+                fail(bindingName, events.subList(i, events.size()), ex);
+                return;
+            }
+        }
+    }
+
+    private void fail(String bindingName, List<PendingEvent> events, Throwable ex) {
+        log.warn("Failed to send {} events for key: {} to {}. Error message: {}",
+                events.size(), events.get(0).event().getKey(), bindingName, ex.getMessage());
+        events.forEach(p -> p.result().tryEmitError(new EventProcessingException(ex.getMessage())));
+    }
+
+    private void send(String bindingName, PendingEvent pending) {
+        Event<?, ?> event = pending.event();
+        String eventId = UUID.randomUUID().toString();
+
+        MessageBuilder<? extends Event<?, ?>> builder = MessageBuilder.withPayload(event)
+                .setHeader("partitionKey", event.getKey())
+                .setHeader(EVENT_ID_HEADER, eventId);
+
+        switch (confirmMode) {
+            case RABBIT -> {
+                CorrelationData correlation = new CorrelationData(eventId);
+                builder.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlation);
+                streamBridge.send(bindingName, builder.build());
+                awaitConfirm(pending, Mono.fromFuture(correlation.getFuture())
+                        .flatMap(confirm -> confirm.isAck()
+                                ? Mono.empty()
+                                : Mono.error(new EventProcessingException("Event was nacked by the broker: " + confirm.getReason()))));
+            }
+            case KAFKA -> {
+                Sinks.Empty<Void> ack = Sinks.empty();
+                pendingKafkaAcks.put(eventId, ack);
+                streamBridge.send(bindingName, builder.build());
+                awaitConfirm(pending, ack.asMono().doFinally(signal -> pendingKafkaAcks.remove(eventId)));
+            }
+            default -> {
+                streamBridge.send(bindingName, builder.build());
+                pending.result().tryEmitEmpty();
+            }
+        }
+    }
+
+    private void awaitConfirm(PendingEvent pending, Mono<Void> confirm) {
+        confirm.timeout(confirmTimeout)
+                .onErrorMap(TimeoutException.class, ex -> new EventProcessingException(
+                        "No publisher confirm received for event with key: " + pending.event().getKey()))
+                .subscribe(
+                        null,
+                        ex -> pending.result().tryEmitError(ex),
+                        () -> pending.result().tryEmitEmpty());
+    }
+
+    private void onKafkaAck(Message<?> message) {
+        Object eventId = message.getHeaders().get(EVENT_ID_HEADER);
+        Sinks.Empty<Void> ack = (eventId == null) ? null : pendingKafkaAcks.get(eventId.toString());
+        if (ack != null) {
+            ack.tryEmitEmpty();
+        }
+    }
+
+    private record PendingEvent(Event<?, ?> event, Sinks.Empty<Void> result) {
+    }
+
+    private record BindingQueue(Sinks.Many<PendingEvent> sink, Disposable pipeline, CountDownLatch terminated) {
+    }
+
+    private static class QueueFullException extends RuntimeException {
+        QueueFullException() {
+            super(null, null, false, false);
+        }
+    }
+}
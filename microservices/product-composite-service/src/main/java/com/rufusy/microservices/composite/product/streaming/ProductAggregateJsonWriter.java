@@ -0,0 +1,138 @@
+package com.rufusy.microservices.composite.product.streaming;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the JSON of a product aggregate while the recommendations and reviews arrive from the core services,
+ * without creating the summaries, their lists or the ProductAggregate.
+ * <p>
+ * The output is the same as the JSON encoding of the ProductAggregate created by ProductAggregateAssembler,
+ * fields are written in the order they are declared in the api classes.
+ */
+public class ProductAggregateJsonWriter {
+    private static final int ELEMENT_BUFFER_SIZE = 256;
+
+    private final JsonFactory jsonFactory;
+
+    public ProductAggregateJsonWriter(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public Flux<DataBuffer> write(
+            Product product,
+            Flux<Recommendation> recommendations,
+            Flux<Review> reviews,
+            String serviceAddress,
+            DataBufferFactory bufferFactory) {
+
+        // The addresses of the core services are taken from the first recommendation and review, as ProductAggregateAssembler does
+        AtomicReference<String> recommendationAddress = new AtomicReference<>("");
+        AtomicReference<String> reviewAddress = new AtomicReference<>("");
+
+        Flux<DataBuffer> recommendationsJson = recommendations
+                .index()
+                .map(indexed -> {
+                    Recommendation r = indexed.getT2();
+                    if (indexed.getT1() == 0) {
+                        recommendationAddress.set(r.getServiceAddress());
+                    }
+                    return write(bufferFactory, indexed.getT1() > 0, generator -> {
+                        generator.writeStartObject();
+                        generator.writeNumberField("recommendationId", r.getRecommendationId());
+                        generator.writeStringField("author", r.getAuthor());
+                        generator.writeStringField("content", r.getContent());
+                        generator.writeNumberField("rate", r.getRate());
+                        generator.writeEndObject();
+                    });
+                });
+
+        Flux<DataBuffer> reviewsJson = reviews
+                .index()
+                .map(indexed -> {
+                    Review r = indexed.getT2();
+                    if (indexed.getT1() == 0) {
+                        reviewAddress.set(r.getServiceAddress());
+                    }
+                    return write(bufferFactory, indexed.getT1() > 0, generator -> {
+                        generator.writeStartObject();
+                        generator.writeNumberField("reviewId", r.getReviewId());
+                        generator.writeStringField("author", r.getAuthor());
+                        generator.writeStringField("subject", r.getSubject());
+                        generator.writeStringField("content", r.getContent());
+                        generator.writeEndObject();
+                    });
+                });
+
+        Mono<DataBuffer> head = Mono.fromCallable(() -> write(bufferFactory, false, generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("productId", product.getProductId());
+            generator.writeStringField("name", product.getName());
+            generator.writeNumberField("weight", product.getWeight());
+            generator.writeFieldName("recommendations");
+            generator.writeStartArray();
+        }));
+
+        Mono<DataBuffer> betweenLists = Mono.fromCallable(() -> raw(bufferFactory, "],\"reviews\":["));
+
+        Mono<DataBuffer> tail = Mono.fromCallable(() -> write(bufferFactory, false, generator -> {
+            // Closes the reviews array first, the generator is not aware of it
+            generator.writeRaw(']');
+            generator.writeRaw(',');
+            generator.writeRaw("\"serviceAddresses\":");
+            generator.writeStartObject();
+            generator.writeStringField("cmp", serviceAddress);
+            generator.writeStringField("pro", product.getServiceAddress());
+            generator.writeStringField("rev", reviewAddress.get());
+            generator.writeStringField("rec", recommendationAddress.get());
+            generator.writeEndObject();
+            generator.writeRaw('}');
+        }));
+
+        // Both lists are requested right away, the reviews are buffered while the recommendations are written.
+        // The tail is written when both lists are complete, it needs their service addresses
+        return Flux.concat(
+                        head,
+                        Flux.mergeSequential(recommendationsJson, Flux.concat(betweenLists, reviewsJson)),
+                        tail)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private DataBuffer raw(DataBufferFactory bufferFactory, String json) {
+        return bufferFactory.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DataBuffer write(DataBufferFactory bufferFactory, boolean separator, JsonWriter writer) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(ELEMENT_BUFFER_SIZE);
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+            // Fragments are written, the generator must not close the objects and arrays that are left open
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            if (separator) {
+                generator.writeRaw(',');
+            }
+            writer.write(generator);
+        } catch (IOException ex) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(ex);
+        }
+        return buffer;
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,114 @@
+package com.rufusy.microservices.composite.product.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.api.exceptions.NotFoundException;
+import com.rufusy.microservices.composite.product.controller.ProductCompositeIntegration;
+import com.rufusy.microservices.util.HttpErrorInfo;
+import com.rufusy.microservices.util.ServiceUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Serves GET /product-composite/{productId} by writing the aggregate JSON as the recommendations and reviews arrive,
+ * see ProductAggregateJsonWriter. Router functions are matched before the annotated controller, requests with
+ * the delay or faultPercent parameters are still served by ProductCompositeController.
+ * <p>
+ * The aggregates are not cached by this path, it is meant for products with large recommendation and review lists.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.aggregate.streaming", havingValue = "true")
+public class ProductAggregateStreamingRouter {
+    private final ProductCompositeIntegration integration;
+    private final ServiceUtil serviceUtil;
+    private final ProductAggregateJsonWriter writer;
+    private final int maxRecommendations;
+    private final int maxReviews;
+
+    public ProductAggregateStreamingRouter(
+            ProductCompositeIntegration integration,
+            ServiceUtil serviceUtil,
+            ObjectMapper mapper,
+            @Value("${app.aggregate.maxRecommendations:20}") int maxRecommendations,
+            @Value("${app.aggregate.maxReviews:20}") int maxReviews) {
+
+        this.integration = integration;
+        this.serviceUtil = serviceUtil;
+        this.writer = new ProductAggregateJsonWriter(mapper.getFactory());
+        this.maxRecommendations = maxRecommendations;
+        this.maxReviews = maxReviews;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> productAggregateStreamingRoute() {
+        return route(GET("/product-composite/{productId}")
+                        .and(accept(APPLICATION_JSON))
+                        .and(queryParam("delay", value -> true).negate())
+                        .and(queryParam("faultPercent", value -> true).negate()),
+                this::getProduct);
+    }
+
+    private Mono<ServerResponse> getProduct(ServerRequest request) {
+        int productId;
+        try {
+            productId = Integer.parseInt(request.pathVariable("productId"));
+        } catch (NumberFormatException ex) {
+            return error(request, BAD_REQUEST, "Type mismatch, productId must be a number");
+        }
+
+        log.info("Will stream composite product info for product.id={}", productId);
+
+        String serviceAddress = serviceUtil.getServiceAddress();
+        // The lists are requested at once, in parallel with the product, and what arrives before the product is found is replayed
+        Disposable.Composite lists = Disposables.composite();
+        Flux<Recommendation> recommendations = integration.getRecommendations(productId, 0, maxRecommendations).replay().autoConnect(0, lists::add);
+        Flux<Review> reviews = integration.getReviews(productId, 0, maxReviews).replay().autoConnect(0, lists::add);
+
+        // The status is known once the product is found, the lists are written as they arrive
+        return integration.getProduct(productId, 0, 0)
+                .flatMap(product -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .body(BodyInserters.fromDataBuffers(Flux.defer(() -> writer.write(
+                                        product, recommendations, reviews, serviceAddress, request.exchange().getResponse().bufferFactory()))
+                                .doOnCancel(lists::dispose))))
+                .doOnError(ex -> lists.dispose())
+                .doOnCancel(lists::dispose)
+                .onErrorResume(NotFoundException.class, ex -> error(request, NOT_FOUND, ex.getMessage()))
+                .onErrorResume(InvalidInputException.class, ex -> error(request, UNPROCESSABLE_ENTITY, ex.getMessage()))
+                .doOnError(ex -> log.warn("getCompositeProduct failed: {}", ex.toString()));
+    }
+
+    /**
+     * Same error responses as the GlobalControllerExceptionHandler, it does not apply to router functions.
+     */
+    private Mono<ServerResponse> error(ServerRequest request, HttpStatus httpStatus, String message) {
+        return ServerResponse.status(httpStatus)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(new HttpErrorInfo(httpStatus, request.path(), message));
+    }
+}
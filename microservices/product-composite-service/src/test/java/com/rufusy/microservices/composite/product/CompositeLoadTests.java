@@ -0,0 +1,305 @@
+package com.rufusy.microservices.composite.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
+import com.rufusy.microservices.api.composite.product.RecommendationSummary;
+import com.rufusy.microservices.api.composite.product.ReviewSummary;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Load test of the read and write paths of the composite service, run with:
+ * ./gradlew :microservices:product-composite-service:loadTest -PloadTest.concurrency=100 -PloadTest.faultPercent=10
+ * <p>
+ * The core services are replaced by in-process HTTP stand-ins with a configurable latency, they honor the delay and
+ * faultPercent parameters the same way the product service does. The message broker is replaced by the test binder.
+ * Throughput and latency percentiles are reported for getProduct, createProduct and deleteProduct.
+ * <p>
+ * Settings, as system properties: loadTest.requests, loadTest.concurrency, loadTest.delay, loadTest.faultPercent,
+ * loadTest.backendLatencyMs and loadTest.summaries, the number of recommendations and reviews per product.
+ */
+@Tag("load")
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        classes = {TestSecurityConfig.class},
+        properties = {
+                "eureka.client.enabled=false",
+                "spring.security.oauth2.resourceserver.jwt.issuer-uri=",
+                "spring.main.allow-bean-definition-overriding=true",
+                "spring.cloud.stream.default-binder=rabbit",
+                "spring.cloud.config.enabled=false",
+                "logging.level.com.rufusy=WARN",
+                "logging.level.com.rufusy.microservices.composite.product.CompositeLoadTests=INFO",
+                // Same resilience settings for the product service as in the config repo
+                "resilience4j.timelimiter.instances.product.timeoutDuration=2s",
+                "resilience4j.retry.instances.product.maxAttempts=3",
+                "resilience4j.retry.instances.product.waitDuration=1s",
+                "resilience4j.retry.instances.product.retryExceptions[0]=org.springframework.web.reactive.function.client.WebClientResponseException$InternalServerError",
+                "resilience4j.circuitbreaker.instances.product.slidingWindowType=COUNT_BASED",
+                "resilience4j.circuitbreaker.instances.product.slidingWindowSize=5",
+                "resilience4j.circuitbreaker.instances.product.failureRateThreshold=50",
+                "resilience4j.circuitbreaker.instances.product.waitDurationInOpenState=10s",
+                "resilience4j.circuitbreaker.instances.product.automaticTransitionFromOpenToHalfOpenEnabled=true"
+        }
+)
+@Import({TestChannelBinderConfiguration.class})
+class CompositeLoadTests {
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeLoadTests.class);
+
+    private static final int REQUESTS = Integer.getInteger("loadTest.requests", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("loadTest.concurrency", 50);
+    private static final int DELAY = Integer.getInteger("loadTest.delay", 0);
+    private static final int FAULT_PERCENT = Integer.getInteger("loadTest.faultPercent", 0);
+    private static final Duration BACKEND_LATENCY = Duration.ofMillis(Integer.getInteger("loadTest.backendLatencyMs", 5));
+    private static final int SUMMARIES = Integer.getInteger("loadTest.summaries", 3);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final DisposableServer coreServices = startCoreServices();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OutputDestination target;
+
+    private WebClient client;
+    private ConnectionProvider connectionProvider;
+
+    @DynamicPropertySource
+    static void coreServiceInstances(DynamicPropertyRegistry registry) {
+        // One stand-in serves all three core services, found by the load balancer through the simple discovery client
+        for (String serviceId : List.of("product", "recommendation", "review")) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + serviceId + "[0].uri",
+                    () -> "http://localhost:" + coreServices.port());
+        }
+    }
+
+    @AfterAll
+    static void stopCoreServices() {
+        coreServices.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        connectionProvider = ConnectionProvider.builder("load-test").maxConnections(CONCURRENCY).pendingAcquireMaxCount(-1).build();
+        client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+    }
+
+    @Test
+    void readAndWritePaths() {
+        LOG.info("Load test with requests: {}, concurrency: {}, delay: {}, faultPercent: {}, backendLatency: {}, summaries: {}",
+                REQUESTS, CONCURRENCY, DELAY, FAULT_PERCENT, BACKEND_LATENCY, SUMMARIES);
+
+        // Warms up the JIT, the connection pools and the load balancer before anything is measured
+        run("warmup", REQUESTS / 10, this::getProduct);
+
+        List<Result> results = List.of(
+                run("getProduct", REQUESTS, this::getProduct),
+                run("createProduct", REQUESTS, this::createProduct),
+                run("deleteProduct", REQUESTS, this::deleteProduct));
+
+        String report = results.stream().map(Result::toString).collect(Collectors.joining("\n"));
+        LOG.info("Load test results:\n{}\n{}", Result.HEADER, report);
+        purgeMessages();
+
+        if (FAULT_PERCENT == 0 && DELAY == 0) {
+            results.forEach(result -> assertEquals(0, result.errors(), "Unexpected errors for " + result.name()));
+        }
+
+        connectionProvider.dispose();
+    }
+
+    private Mono<?> getProduct(int i) {
+        return client.get()
+                .uri("/product-composite/{productId}?delay={delay}&faultPercent={faultPercent}", productId(i), DELAY, FAULT_PERCENT)
+                .accept(APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(ProductAggregate.class);
+    }
+
+    private Mono<?> createProduct(int i) {
+        int productId = productId(i);
+        ProductAggregate body = new ProductAggregate(productId, "name " + productId, productId,
+                IntStream.rangeClosed(1, SUMMARIES).mapToObj(r -> new RecommendationSummary(r, "author", "content", 3)).toList(),
+                IntStream.rangeClosed(1, SUMMARIES).mapToObj(r -> new ReviewSummary(r, "author", "subject", "content")).toList(),
+                null);
+
+        return client.post()
+                .uri("/product-composite")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                // The test binder keeps every event, they are dropped as the test goes to bound the memory use
+                .doOnSuccess(response -> {
+                    if (i % 100 == 0) {
+                        purgeMessages();
+                    }
+                });
+    }
+
+    private Mono<?> deleteProduct(int i) {
+        return client.delete()
+                .uri("/product-composite/{productId}", productId(i))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private int productId(int i) {
+        return i % 1000 + 1;
+    }
+
+    private Result run(String name, int requests, IntFunction<Mono<?>> call) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Timer timer = Timer.builder("load.test")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        AtomicInteger errors = new AtomicInteger();
+
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long requestStart = System.nanoTime();
+                    return call.apply(i)
+                            .doOnTerminate(() -> timer.record(System.nanoTime() - requestStart, TimeUnit.NANOSECONDS))
+                            .onErrorResume(ex -> {
+                                errors.incrementAndGet();
+                                return Mono.empty();
+                            });
+                }), CONCURRENCY)
+                .blockLast(Duration.ofMinutes(10));
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(name, requests, errors.get(), requests / (elapsed / 1e9), timer.takeSnapshot());
+    }
+
+    private void purgeMessages() {
+        for (String destination : List.of("products", "recommendations", "reviews")) {
+            while (receive(destination) != null) {
+                // Drops the event
+            }
+        }
+    }
+
+    private Object receive(String destination) {
+        try {
+            return target.receive(0, destination);
+        } catch (NullPointerException npe) {
+            // If the messageQueues member variable in the target object contains no queues when the receive method is called, it will cause a NPE to be thrown.
+            return null;
+        }
+    }
+
+    /**
+     * Stand-in for the product, recommendation and review services, the product lookup honors delay and faultPercent.
+     */
+    private static DisposableServer startCoreServices() {
+        return HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/product/{productId}", (request, response) -> {
+                            int productId = Integer.parseInt(request.param("productId"));
+                            QueryParams params = QueryParams.of(request.uri());
+                            if (params.faultPercent() > ThreadLocalRandom.current().nextInt(100)) {
+                                return response.status(500).send();
+                            }
+                            return response.header("Content-Type", "application/json")
+                                    .sendString(Mono.fromCallable(() -> json(new Product(productId, "name " + productId, productId, "stand-in")))
+                                            .delayElement(BACKEND_LATENCY.plusSeconds(params.delay())));
+                        })
+                        .get("/recommendation", (request, response) -> {
+                            int productId = QueryParams.of(request.uri()).productId();
+                            return response.header("Content-Type", "application/x-ndjson")
+                                    .sendString(Flux.range(1, SUMMARIES)
+                                            .map(r -> json(new Recommendation(productId, r, "author", 3, "content", "stand-in")) + "\n")
+                                            .delaySubscription(BACKEND_LATENCY));
+                        })
+                        .get("/review", (request, response) -> {
+                            int productId = QueryParams.of(request.uri()).productId();
+                            return response.header("Content-Type", "application/x-ndjson")
+                                    .sendString(Flux.range(1, SUMMARIES)
+                                            .map(r -> json(new Review(productId, r, "author", "subject", "content", "stand-in")) + "\n")
+                                            .delaySubscription(BACKEND_LATENCY));
+                        }))
+                .bindNow();
+    }
+
+    private static String json(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record QueryParams(int productId, int delay, int faultPercent) {
+        static QueryParams of(String uri) {
+            var params = UriComponentsBuilder.fromUriString(uri).build().getQueryParams();
+            return new QueryParams(
+                    Integer.parseInt(params.getOrDefault("productId", List.of("0")).get(0)),
+                    Integer.parseInt(params.getOrDefault("delay", List.of("0")).get(0)),
+                    Integer.parseInt(params.getOrDefault("faultPercent", List.of("0")).get(0)));
+        }
+    }
+
+    private record Result(String name, int requests, int errors, double throughput, HistogramSnapshot snapshot) {
+        static final String HEADER = String.format("%-15s %8s %8s %10s %9s %9s %9s %9s",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        @Override
+        public String toString() {
+            ValueAtPercentile[] percentiles = snapshot.percentileValues();
+            return String.format("%-15s %8d %8d %10.1f %9.1f %9.1f %9.1f %9.1f",
+                    name, requests, errors, throughput,
+                    percentiles[0].value(TimeUnit.MILLISECONDS),
+                    percentiles[1].value(TimeUnit.MILLISECONDS),
+                    percentiles[2].value(TimeUnit.MILLISECONDS),
+                    snapshot.max(TimeUnit.MILLISECONDS));
+        }
+    }
+}
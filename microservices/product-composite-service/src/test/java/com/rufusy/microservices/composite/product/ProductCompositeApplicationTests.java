@@ -1,5 +1,6 @@
 package com.rufusy.microservices.composite.product;
 
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
 import com.rufusy.microservices.api.core.product.Product;
 import com.rufusy.microservices.api.core.recommendation.Recommendation;
 import com.rufusy.microservices.api.core.review.Review;
@@ -15,12 +16,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import static java.util.Collections.nCopies;
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @SpringBootTest(
         webEnvironment = RANDOM_PORT,
@@ -45,21 +50,30 @@ class ProductCompositeApplicationTests {
 
     @BeforeEach
     void setUp() {
-        when(compositeIntegration.getProduct(PRODUCT_ID_OK))
+        when(compositeIntegration.getProduct(PRODUCT_ID_OK, 0, 0))
                 .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
 
-        when(compositeIntegration.getRecommendations(PRODUCT_ID_OK))
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_OK, 0, 20))
                 .thenReturn(Flux.fromIterable(singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1,
                         "content", "mock-address"))));
 
-        when(compositeIntegration.getReviews(PRODUCT_ID_OK))
+        when(compositeIntegration.getReviews(PRODUCT_ID_OK, 0, 20))
                 .thenReturn(Flux.fromIterable(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject",
                         "content", "mock-address"))));
 
-        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
+        when(compositeIntegration.getProducts(anyList()))
+                .thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+
+        when(compositeIntegration.getRecommendationsByProductIds(anyList()))
+                .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address")));
+
+        when(compositeIntegration.getReviewsByProductIds(anyList()))
+                .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock-address")));
+
+        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND, 0, 0))
                 .thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 
-        when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
+        when(compositeIntegration.getProduct(PRODUCT_ID_INVALID, 0, 0))
                 .thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
     }
 
@@ -89,6 +103,34 @@ class ProductCompositeApplicationTests {
                 .jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
     }
 
+    @Test
+    void getProductsByIds() {
+        Flux<ProductAggregate> aggregates = client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND)
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .returnResult(ProductAggregate.class)
+                .getResponseBody();
+
+        StepVerifier.create(aggregates)
+                .expectNextMatches(aggregate -> aggregate.getProductId() == PRODUCT_ID_OK
+                        && aggregate.getRecommendations().size() == 1
+                        && aggregate.getReviews().size() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsByIdsTooManyIds() {
+        String ids = String.join(",", nCopies(101, String.valueOf(PRODUCT_ID_OK)));
+
+        client.get()
+                .uri("/product-composite?ids=" + ids)
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY);
+    }
+
     private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
         return client.get()
                 .uri("/product-composite/" + productId)
@@ -0,0 +1,105 @@
+package com.rufusy.microservices.composite.product.cache;
+
+import com.rufusy.microservices.api.composite.product.ProductAggregate;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductAggregateCacheTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProductAggregateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductAggregateCache(meterRegistry, circuitBreakerRegistry, true, 100, 60, 50);
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+        cache.invalidate(1);
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateEvictsAgainAfterTheDelay() {
+        cache.invalidate(1);
+        // A read before the core services have processed the events caches the old aggregate
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(200)).then(cache.get(1, () -> load(1))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loadRacingWithInvalidationIsNotStored() {
+        StepVerifier.create(cache.get(1, () -> load(1).doOnNext(a -> cache.invalidate(1))))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void fallbackWhileCircuitIsOpenIsNotStored() {
+        circuitBreakerRegistry.circuitBreaker("product").transitionToOpenState();
+
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void degradedAggregateIsNotStored() {
+        StepVerifier.create(cache.get(1, () -> ProductAggregateCache.degraded().then(load(1)))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        cache = new ProductAggregateCache(meterRegistry, circuitBreakerRegistry, false, 100, 60, 50);
+
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, () -> load(1))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    private Mono<ProductAggregate> load(int productId) {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return ProductAggregate.builder().productId(productId).name("name").weight(1).build();
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.rufusy.microservices.composite.product.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new RequestCoalescer(meterRegistry, true);
+    }
+
+    @Test
+    void concurrentSubscribersShareOneCall() {
+        Sinks.One<String> response = Sinks.one();
+
+        Mono<String> first = coalescer.mono("product", 1, () -> call(response.asMono()));
+        Mono<String> second = coalescer.mono("product", 1, () -> call(response.asMono()));
+
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> response.tryEmitValue("product-1"))
+                .expectNext("product-1", "product-1")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, counter("product", "issued"));
+        assertEquals(1.0, counter("product", "collapsed"));
+    }
+
+    @Test
+    void differentKeysAreNotShared() {
+        Sinks.One<String> response = Sinks.one();
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("product", 1, () -> call(response.asMono())),
+                        coalescer.mono("product", 2, () -> call(response.asMono()))))
+                .then(() -> response.tryEmitValue("product"))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void completedCallIsNotReused() {
+        StepVerifier.create(coalescer.mono("product", 1, () -> call(Mono.just("first")))).expectNext("first").verifyComplete();
+        StepVerifier.create(coalescer.mono("product", 1, () -> call(Mono.just("second")))).expectNext("second").verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(0.0, meterRegistry.get("composite.coalescing.inflight").gauge().value());
+    }
+
+    @Test
+    void failedCallIsRemovedAndErrorIsShared() {
+        Sinks.One<String> response = Sinks.one();
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("product", 1, () -> call(response.asMono())),
+                        coalescer.mono("product", 1, () -> call(response.asMono()))))
+                .then(() -> response.tryEmitError(new RuntimeException("boom")))
+                .verifyErrorMessage("boom");
+
+        StepVerifier.create(coalescer.mono("product", 1, () -> call(Mono.just("retried")))).expectNext("retried").verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void fluxResultIsReplayedToAllSubscribers() {
+        Sinks.Many<Integer> response = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.flux("review", 1, () -> call(response.asFlux())),
+                        coalescer.flux("review", 1, () -> call(response.asFlux()))))
+                .then(() -> {
+                    response.tryEmitNext(1);
+                    response.tryEmitNext(2);
+                    response.tryEmitComplete();
+                })
+                .expectNextCount(4)
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, counter("review", "collapsed"));
+    }
+
+    @Test
+    void fluxElementsArePassedOnBeforeTheCallCompletes() {
+        Sinks.Many<Integer> response = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(coalescer.flux("review", 1, () -> call(response.asFlux())))
+                .then(() -> response.tryEmitNext(1))
+                .expectNext(1)
+                // A late subscriber gets the element emitted so far, then the live ones
+                .then(() -> StepVerifier.create(coalescer.flux("review", 1, () -> call(Flux.just(99))).take(1))
+                        .expectNext(1)
+                        .verifyComplete())
+                .then(() -> {
+                    response.tryEmitNext(2);
+                    response.tryEmitComplete();
+                })
+                .expectNext(2)
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void disabledCoalescerAlwaysCalls() {
+        coalescer = new RequestCoalescer(meterRegistry, false);
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("product", 1, () -> call(Mono.just("a"))),
+                        coalescer.mono("product", 1, () -> call(Mono.just("b")))))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+    }
+
+    private <T> Mono<T> call(Mono<T> response) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return response;
+        });
+    }
+
+    private <T> Flux<T> call(Flux<T> response) {
+        return Flux.defer(() -> {
+            calls.incrementAndGet();
+            return response;
+        });
+    }
+
+    private double counter(String service, String result) {
+        return meterRegistry.get("composite.coalescing.calls").tag("service", service).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,63 @@
+package com.rufusy.microservices.composite.product.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientConcurrencyLimitTests {
+
+    @Test
+    void limitGrowsWithSteadyLatencyAndShrinksWhenLatencyRises() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 5, 500, 1.5, 0.2);
+
+        saturatedRequests(limit, Duration.ofMillis(10), 50);
+        int steadyLimit = limit.getLimit();
+        assertTrue(steadyLimit > 20, "Expected the limit to grow, got: " + steadyLimit);
+
+        saturatedRequests(limit, Duration.ofMillis(200), 50);
+        int slowLimit = limit.getLimit();
+        assertTrue(slowLimit < steadyLimit / 2, "Expected the limit to shrink from " + steadyLimit + ", got: " + slowLimit);
+        assertTrue(slowLimit >= 5);
+    }
+
+    @Test
+    void unusedLimitDoesNotChange() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 5, 500, 1.5, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            int inflight = limit.tryAcquire(false);
+            limit.release(Duration.ofMillis(i % 2 == 0 ? 10 : 500).toNanos(), inflight, true);
+        }
+
+        assertEquals(20, limit.getLimit());
+        assertEquals(0, limit.getInflight());
+    }
+
+    @Test
+    void readsAreShedBeforeWrites() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 5, 500, 1.5, 0.2);
+
+        int admittedReads = 0;
+        while (limit.tryAcquire(false) > 0) {
+            admittedReads++;
+        }
+
+        assertEquals(8, admittedReads);
+        assertEquals(9, limit.tryAcquire(true));
+        assertEquals(10, limit.tryAcquire(true));
+        assertEquals(0, limit.tryAcquire(true));
+    }
+
+    /**
+     * Requests that each see the limit in use, as under load.
+     */
+    private void saturatedRequests(GradientConcurrencyLimit limit, Duration latency, int count) {
+        for (int i = 0; i < count; i++) {
+            limit.tryAcquire(true);
+            limit.release(latency.toNanos(), limit.getLimit(), true);
+        }
+    }
+}
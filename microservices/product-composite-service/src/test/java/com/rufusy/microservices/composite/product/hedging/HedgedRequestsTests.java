@@ -0,0 +1,93 @@
+package com.rufusy.microservices.composite.product.hedging;
+
+import com.rufusy.microservices.composite.product.loadbalancer.InstanceLatencyStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HedgedRequestsTests {
+    private static final Duration SLOW = Duration.ofMillis(500);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ServiceInstance> instances = List.of(
+            new DefaultServiceInstance("product-a", "product", "host-a", 80, false),
+            new DefaultServiceInstance("product-b", "product", "host-b", 80, false));
+
+    @SuppressWarnings("unchecked")
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory = mock(ReactiveLoadBalancer.Factory.class);
+
+    @BeforeEach
+    void setUp() {
+        AtomicInteger position = new AtomicInteger();
+        ReactiveLoadBalancer<ServiceInstance> roundRobin = request ->
+                Mono.just(new DefaultResponse(instances.get(position.getAndIncrement() % instances.size())));
+
+        when(loadBalancerFactory.getInstance("product")).thenReturn(roundRobin);
+    }
+
+    @Test
+    void hedgeToAnotherInstanceWinsOverSlowPrimary() {
+        HedgedRequests hedgedRequests = createHedgedRequests(100);
+
+        StepVerifier.create(hedgedRequests.execute("product", this::callInstanceASlow))
+                .expectNext("host-b")
+                .verifyComplete();
+
+        assertEquals(1.0, counter("hedged"));
+        assertEquals(1.0, counter("hedge_won"));
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        HedgedRequests hedgedRequests = createHedgedRequests(100);
+
+        StepVerifier.create(hedgedRequests.execute("product", instance -> Mono.just(instance.getHost())))
+                .expectNext("host-a")
+                .verifyComplete();
+
+        assertEquals(0.0, counter("hedged"));
+        assertEquals(0.0, counter("hedge_won"));
+    }
+
+    @Test
+    void noHedgeWithoutBudget() {
+        // The first call only earns a tenth of a hedge
+        HedgedRequests hedgedRequests = createHedgedRequests(10);
+
+        StepVerifier.create(hedgedRequests.execute("product", this::callInstanceASlow))
+                .expectNext("host-a")
+                .verifyComplete();
+
+        assertEquals(1.0, counter("budget_exhausted"));
+        assertEquals(0.0, counter("hedged"));
+    }
+
+    private Mono<String> callInstanceASlow(ServiceInstance instance) {
+        Mono<String> response = Mono.just(instance.getHost());
+        return instance.getHost().equals("host-a") ? response.delayElement(SLOW) : response;
+    }
+
+    private HedgedRequests createHedgedRequests(int budgetPercent) {
+        // Too few samples for the percentile, the hedge delay is the max delay
+        return new HedgedRequests(loadBalancerFactory, new InstanceLatencyStats(10000, 1000, 300000), meterRegistry, true, 0.95, 10, 50, 100, budgetPercent, 10);
+    }
+
+    private double counter(String outcome) {
+        var counter = meterRegistry.find("composite.hedging.requests").tag("outcome", outcome).counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+}
@@ -0,0 +1,37 @@
+package com.rufusy.microservices.composite.product.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstanceLatencyStatsTests {
+    private final ServiceInstance instance = new DefaultServiceInstance("product-1", "product", "localhost", 7001, false);
+
+    @Test
+    void statsOfAnIdleInstanceAreDropped() throws InterruptedException {
+        InstanceLatencyStats stats = new InstanceLatencyStats(10000, 1000, 50);
+
+        stats.start(instance);
+        stats.complete(instance, TimeUnit.SECONDS.toNanos(1), false);
+        assertTrue(stats.cost(instance) > 0.0);
+
+        Thread.sleep(200);
+
+        assertEquals(0.0, stats.cost(instance));
+    }
+
+    @Test
+    void statsOfAnInstanceInUseAreKept() {
+        InstanceLatencyStats stats = new InstanceLatencyStats(10000, 1000, 300000);
+
+        stats.start(instance);
+        stats.complete(instance, TimeUnit.SECONDS.toNanos(1), false);
+
+        assertTrue(stats.cost(instance) > TimeUnit.MILLISECONDS.toNanos(900));
+    }
+}
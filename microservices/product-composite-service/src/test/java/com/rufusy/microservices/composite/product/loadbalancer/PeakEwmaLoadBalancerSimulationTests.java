@@ -0,0 +1,135 @@
+package com.rufusy.microservices.composite.product.loadbalancer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same load against three local stand-ins for a product service, one of them degraded,
+ * and compares the share of the requests that the degraded instance gets with round-robin and peak-EWMA.
+ */
+class PeakEwmaLoadBalancerSimulationTests {
+    private static final Logger LOG = LoggerFactory.getLogger(PeakEwmaLoadBalancerSimulationTests.class);
+
+    private static final Duration HEALTHY_LATENCY = Duration.ofMillis(5);
+    private static final Duration DEGRADED_LATENCY = Duration.ofMillis(100);
+    private static final int REQUESTS = 300;
+    private static final int CONCURRENCY = 8;
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final List<ServiceInstance> instances = new ArrayList<>();
+    private final WebClient webClient = WebClient.create();
+
+    private ServiceInstance degraded;
+    private InstanceLatencyStats stats;
+
+    @BeforeEach
+    void setUp() {
+        degraded = startInstance("product-degraded", DEGRADED_LATENCY);
+        startInstance("product-1", HEALTHY_LATENCY);
+        startInstance("product-2", HEALTHY_LATENCY);
+
+        stats = new InstanceLatencyStats(10000, 1000, 300000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    void degradedInstanceGetsLessTrafficThanWithRoundRobin() {
+        double roundRobinShare = degradedShare(new RoundRobinLoadBalancer(supplierProvider(), "product"));
+        double peakEwmaShare = degradedShare(new PeakEwmaLoadBalancer(supplierProvider(), "product", stats));
+
+        LOG.info("Share of {} requests sent to the degraded instance, round-robin: {}, peak-EWMA: {}",
+                REQUESTS, roundRobinShare, peakEwmaShare);
+
+        assertTrue(roundRobinShare > 0.3, "Expected round-robin to spread the requests evenly, got: " + roundRobinShare);
+        assertTrue(peakEwmaShare < 0.1, "Expected peak-EWMA to avoid the degraded instance, got: " + peakEwmaShare);
+    }
+
+    private double degradedShare(ReactorServiceInstanceLoadBalancer loadBalancer) {
+        Map<String, AtomicInteger> requestsPerInstance = new ConcurrentHashMap<>();
+
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> loadBalancer.choose(new DefaultRequest<>())
+                        .flatMap(response -> call(response.getServer())
+                                .doOnSubscribe(s -> requestsPerInstance
+                                        .computeIfAbsent(response.getServer().getInstanceId(), k -> new AtomicInteger())
+                                        .incrementAndGet())), CONCURRENCY)
+                .blockLast(Duration.ofSeconds(60));
+
+        return requestsPerInstance.getOrDefault(degraded.getInstanceId(), new AtomicInteger()).get() / (double) REQUESTS;
+    }
+
+    /**
+     * Reports the call to the stats the same way the load balancer lifecycle does for the lb:// WebClient.
+     */
+    private Mono<String> call(ServiceInstance instance) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            stats.start(instance);
+            return webClient.get()
+                    .uri(instance.getUri() + "/product/1")
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doFinally(signal -> stats.complete(instance, System.nanoTime() - start, false));
+        });
+    }
+
+    private ServiceInstance startInstance(String instanceId, Duration latency) {
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/product/{productId}",
+                        (request, response) -> response.sendString(Mono.just(instanceId).delayElement(latency))))
+                .bindNow();
+        servers.add(server);
+
+        ServiceInstance instance = new DefaultServiceInstance(instanceId, "product", "localhost", server.port(), false);
+        instances.add(instance);
+        return instance;
+    }
+
+    private ObjectProvider<ServiceInstanceListSupplier> supplierProvider() {
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "product";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        };
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("serviceInstanceListSupplier", supplier);
+        return beanFactory.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+}
@@ -0,0 +1,119 @@
+package com.rufusy.microservices.composite.product.messaging;
+
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.EventProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static com.rufusy.microservices.composite.product.messaging.EventPublisher.ConfirmMode.KAFKA;
+import static com.rufusy.microservices.composite.product.messaging.EventPublisher.ConfirmMode.NONE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventPublisherTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final DirectChannel acks = new DirectChannel();
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    void eventsAreSentInOrderPerPartitionKey() {
+        EventPublisher publisher = createPublisher(NONE, 100, 10);
+        recordSentMessages(true);
+
+        StepVerifier.create(Flux.range(1, 20)
+                        .flatMap(i -> publisher.publish("products-out-0", new Event<>(CREATE, i % 2, i))))
+                .verifyComplete();
+
+        assertEquals(20, sent.size());
+        assertEquals(List.of(1, 3, 5, 7, 9, 11, 13, 15, 17, 19), payloadsForKey(1));
+        assertEquals(List.of(2, 4, 6, 8, 10, 12, 14, 16, 18, 20), payloadsForKey(0));
+
+        double batches = meterRegistry.get("composite.events.batch.size").tag("binding", "products-out-0").summary().count();
+        assertTrue(batches >= 2, "Expected events to be sent in at least two batches of max 10, got: " + batches);
+    }
+
+    @Test
+    void fullQueueAppliesBackpressureInsteadOfRejecting() {
+        EventPublisher publisher = createPublisher(NONE, 2, 1);
+        recordSentMessages(true);
+
+        StepVerifier.create(Flux.range(1, 50)
+                        .flatMap(i -> publisher.publish("products-out-0", new Event<>(CREATE, i, i))))
+                .verifyComplete();
+
+        assertEquals(50, sent.size());
+    }
+
+    @Test
+    void failedSendIsReportedToTheCaller() {
+        EventPublisher publisher = createPublisher(NONE, 100, 10);
+        recordSentMessages(false);
+
+        StepVerifier.create(publisher.publish("products-out-0", new Event<>(CREATE, 1, 1)))
+                .verifyError(EventProcessingException.class);
+    }
+
+    @Test
+    void kafkaAckCompletesThePublish() {
+        EventPublisher publisher = createPublisher(KAFKA, 100, 10);
+        when(streamBridge.send(anyString(), any())).thenAnswer(invocation -> {
+            Message<?> message = invocation.getArgument(1);
+            acks.send(MessageBuilder.fromMessage(message).build());
+            return true;
+        });
+
+        StepVerifier.create(publisher.publish("products-out-0", new Event<>(CREATE, 1, 1)))
+                .verifyComplete();
+    }
+
+    @Test
+    void closeSendsTheQueuedEventsBeforeItReturns() {
+        EventPublisher publisher = new EventPublisher(streamBridge, Schedulers.boundedElastic(), acks, meterRegistry,
+                NONE, 100, 10, 60000, 5000, 5000, 5000);
+        recordSentMessages(true);
+
+        publisher.publish("products-out-0", new Event<>(CREATE, 1, 1)).subscribe();
+        publisher.close();
+
+        assertEquals(1, sent.size());
+    }
+
+    private EventPublisher createPublisher(EventPublisher.ConfirmMode confirmMode, int queueSize, int maxBatchSize) {
+        return new EventPublisher(streamBridge, Schedulers.boundedElastic(), acks, meterRegistry,
+                confirmMode, queueSize, maxBatchSize, 10, 5000, 5000, 5000);
+    }
+
+    private void recordSentMessages(boolean accepted) {
+        when(streamBridge.send(anyString(), any())).thenAnswer(invocation -> {
+            if (!accepted) {
+                throw new IllegalStateException("Broker unavailable");
+            }
+            sent.add(invocation.getArgument(1));
+            return true;
+        });
+    }
+
+    private List<Object> payloadsForKey(int key) {
+        return sent.stream()
+                .map(m -> (Event<?, ?>) m.getPayload())
+                .filter(e -> e.getKey().equals(key))
+                .map(e -> (Object) e.getData())
+                .toList();
+    }
+}
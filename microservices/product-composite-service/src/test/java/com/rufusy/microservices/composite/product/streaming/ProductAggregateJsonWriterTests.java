@@ -0,0 +1,90 @@
+package com.rufusy.microservices.composite.product.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.composite.product.coalescing.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static com.rufusy.microservices.composite.product.controller.ProductAggregateAssembler.createProductAggregate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductAggregateJsonWriterTests {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ProductAggregateJsonWriter writer = new ProductAggregateJsonWriter(mapper.getFactory());
+
+    private final Product product = new Product(1, "name \"quoted\"", 1, "pro-address");
+
+    @Test
+    void writesTheSameJsonAsTheAssembledAggregate() throws Exception {
+        List<Recommendation> recommendations = List.of(
+                new Recommendation(1, 1, "a1", 1, "c1", "rec-address"),
+                new Recommendation(1, 2, "a2", 2, "c2", "rec-address"));
+        List<Review> reviews = List.of(
+                new Review(1, 1, "a1", "s1", "c1", "rev-address"),
+                new Review(1, 2, "a2", "s2", "c2", "rev-address"),
+                new Review(1, 3, "a3", "s3", "c3", "rev-address"));
+
+        // The reviews arrive before the recommendations are complete
+        String json = write(
+                Flux.fromIterable(recommendations).delayElements(Duration.ofMillis(10)),
+                Flux.fromIterable(reviews));
+
+        assertEquals(mapper.writeValueAsString(createProductAggregate(product, recommendations, reviews, "cmp-address")), json);
+    }
+
+    @Test
+    void writesEmptyListsWithoutServiceAddresses() throws Exception {
+        String json = write(Flux.empty(), Flux.empty());
+
+        assertEquals(mapper.writeValueAsString(createProductAggregate(product, List.of(), List.of(), "cmp-address")), json);
+    }
+
+    @Test
+    void firstRecommendationIsWrittenBeforeTheCoalescedCallsComplete() {
+        RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry(), true);
+        Sinks.Many<Recommendation> recommendations = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<Review> reviews = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<String> fragments = writer.write(
+                        product,
+                        coalescer.flux("recommendation", 1, recommendations::asFlux),
+                        coalescer.flux("review", 1, reviews::asFlux),
+                        "cmp-address",
+                        DefaultDataBufferFactory.sharedInstance)
+                .map(buffer -> {
+                    String fragment = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return fragment;
+                });
+
+        StepVerifier.create(fragments)
+                .expectNextMatches(json -> json.startsWith("{\"productId\":1"))
+                .then(() -> recommendations.tryEmitNext(new Recommendation(1, 1, "a1", 1, "c1", "rec-address")))
+                // Written while both the recommendation and the review calls are still in progress
+                .expectNextMatches(json -> json.contains("\"author\":\"a1\""))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private String write(Flux<Recommendation> recommendations, Flux<Review> reviews) {
+        return DataBufferUtils.join(writer.write(product, recommendations, reviews, "cmp-address", DefaultDataBufferFactory.sharedInstance))
+                .map(buffer -> {
+                    String json = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return json;
+                })
+                .block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,82 @@
+package com.rufusy.microservices.core.product.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rufusy.microservices.core.product.persistence.ProductEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through cache of products by productId, bounded by size and time to live.
+ * <p>
+ * Concurrent reads of a product that is not cached share one load. Entries are invalidated when this instance
+ * creates or deletes products and on the product events of all instances, see CacheInvalidationConfig.
+ * An invalidation also drops a load that is in flight, so it is never stored.
+ * Products that are not found are not cached.
+ */
+@Slf4j
+@Component
+public class ProductCache {
+    private final boolean enabled;
+    private final AsyncCache<Integer, ProductEntity> cache;
+
+    @Autowired
+    public ProductCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.productCache.enabled:false}") boolean enabled,
+            @Value("${app.productCache.maxSize:10000}") long maxSize,
+            @Value("${app.productCache.ttlSeconds:60}") long ttlSeconds) {
+
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productCache");
+        Gauge.builder("cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .tag("cache", "productCache")
+                .description("The ratio of cache requests that were hits")
+                .register(meterRegistry);
+
+        log.info("Creates a productCache, enabled = {}, maxSize = {}, ttlSeconds = {}", enabled, maxSize, ttlSeconds);
+    }
+
+    public Mono<ProductEntity> get(int productId, IntFunction<Mono<ProductEntity>> loader) {
+        if (!enabled) {
+            return loader.apply(productId);
+        }
+
+        // The load is shared, a subscriber that cancels must not cancel it for the others
+        return Mono.defer(() -> Mono.fromFuture(cache.get(productId, (key, executor) -> loader.apply(key).toFuture()), true));
+    }
+
+    public void invalidate(int productId) {
+        if (!enabled) {
+            return;
+        }
+
+        log.debug("Invalidates the cached product for productId: {}", productId);
+        cache.synchronous().invalidate(productId);
+    }
+
+    public void invalidateAll(Collection<Integer> productIds) {
+        if (!enabled) {
+            return;
+        }
+
+        log.debug("Invalidates the cached products for {} productIds", productIds.size());
+        cache.synchronous().invalidateAll(productIds);
+    }
+}
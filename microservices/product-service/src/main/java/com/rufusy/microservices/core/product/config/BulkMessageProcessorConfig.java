@@ -0,0 +1,181 @@
+package com.rufusy.microservices.core.product.config;
+
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.EventProcessingException;
+import com.rufusy.microservices.core.product.service.ProductService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static com.rufusy.microservices.api.event.Event.Type.DELETE;
+
+/**
+ * Bulk alternative to {@link MessageProcessorConfig}, enabled with app.messaging.consumerMode=bulk.
+ * <p>
+ * Events are collected into windows bounded by size and time. Each window is split into runs of events of the same type,
+ * keeping the order of the events, and each run is applied with one unordered Mongo bulk write.
+ * Items that fail in a bulk write, e.g. duplicates, are sent to the DLQ one by one, the rest of the run is kept.
+ * When a run is retried after the bulk write failed as a whole, duplicates that are stored with the content of their
+ * event are taken as inserted by the earlier attempt.
+ * As in the reactive mode, messages are acknowledged on receipt, the events of a window that is not yet written
+ * when the consumer stops are lost.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.messaging.consumerMode", havingValue = "bulk")
+public class BulkMessageProcessorConfig {
+    private final ProductService productService;
+    private final StreamBridge streamBridge;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final Retry retry;
+
+    @Autowired
+    public BulkMessageProcessorConfig(
+            ProductService productService,
+            StreamBridge streamBridge,
+            @Value("${app.messaging.bulk.maxBatchSize:500}") int maxBatchSize,
+            @Value("${app.messaging.bulk.maxBatchDelayMs:100}") long maxBatchDelayMs,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.maxAttempts:3}") int maxAttempts,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffInitialInterval:1000}") long backOffInitialInterval,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMaxInterval:10000}") long backOffMaxInterval) {
+
+        this.productService = productService;
+        this.streamBridge = streamBridge;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = Duration.ofMillis(maxBatchDelayMs);
+        this.retry = Retry.backoff(maxAttempts - 1, Duration.ofMillis(backOffInitialInterval))
+                .maxBackoff(Duration.ofMillis(backOffMaxInterval))
+                .jitter(0);
+
+        log.info("Creates a bulk messageProcessor with maxBatchSize = {}, maxBatchDelayMs = {}, maxAttempts = {}",
+                maxBatchSize, maxBatchDelayMs, maxAttempts);
+    }
+
+    @Bean
+    public Function<Flux<Event<Integer, Product>>, Mono<Void>> messageProcessor() {
+        return events -> events
+                .bufferTimeout(maxBatchSize, maxBatchDelay, true)
+                .concatMap(this::processBatch)
+                .then();
+    }
+
+    private Mono<Void> processBatch(List<Event<Integer, Product>> batch) {
+        log.debug("Process a batch of {} events", batch.size());
+        return Flux.fromIterable(splitIntoRuns(batch))
+                .concatMap(this::processRun)
+                .then();
+    }
+
+    private Mono<Void> processRun(List<Event<Integer, Product>> run) {
+        Event.Type eventType = run.get(0).getEventType();
+
+        Mono<Void> write;
+        if (eventType == CREATE) {
+            log.debug("Create {} products", run.size());
+            AtomicInteger attempts = new AtomicInteger();
+            write = Mono.defer(() -> {
+                        boolean retried = attempts.getAndIncrement() > 0;
+                        return productService.createProducts(run.stream().map(Event::getData).toList())
+                                .flatMap(failures -> retried ? withoutEarlierInserts(run, failures) : Mono.just(failures))
+                                .doOnNext(failures -> failures.forEach(failure -> sendToDlq(run.get(failure.index()), failure.error())));
+                    })
+                    .then();
+
+        } else if (eventType == DELETE) {
+            log.debug("Delete products for {} productIds", run.size());
+            write = productService.deleteProductsById(run.stream().map(Event::getKey).toList());
+
+        } else {
+            String errorMessage = "Incorrect event type: " + eventType + ", expected a CREATE or DELETE event";
+            log.warn(errorMessage);
+            run.forEach(event -> sendToDlq(event, new EventProcessingException(errorMessage)));
+            return Mono.empty();
+        }
+
+        // Errors that fail the whole bulk write, e.g. a lost connection, are retried before the run is dead lettered
+        return write
+                .retryWhen(retry)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to process a run of {} {} events, will send them to the DLQ: {}", run.size(), eventType, ex.toString());
+                    run.forEach(event -> sendToDlq(event, ex));
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * A bulk write that failed as a whole may have inserted some of the products, its retry fails on them as duplicates.
+     * Duplicates that are stored with the content of their event are taken as inserted by the earlier attempt,
+     * other duplicates, e.g. of products that existed before the run, are still failures.
+     */
+    private Mono<List<BulkWriteFailure>> withoutEarlierInserts(List<Event<Integer, Product>> run, List<BulkWriteFailure> failures) {
+        List<Integer> duplicateIds = failures.stream()
+                .filter(BulkWriteFailure::duplicateKey)
+                .map(failure -> run.get(failure.index()).getKey())
+                .toList();
+        if (duplicateIds.isEmpty()) {
+            return Mono.just(failures);
+        }
+
+        return productService.getProducts(duplicateIds)
+                .collectMap(Product::getProductId)
+                .map(stored -> failures.stream()
+                        .filter(failure -> {
+                            Product product = run.get(failure.index()).getData();
+                            boolean insertedEarlier = failure.duplicateKey() && sameContent(stored.get(product.getProductId()), product);
+                            if (insertedEarlier) {
+                                log.debug("Product with productId: {} was created by an earlier attempt", product.getProductId());
+                            }
+                            return !insertedEarlier;
+                        })
+                        .toList());
+    }
+
+    private boolean sameContent(Product stored, Product product) {
+        return stored != null && Objects.equals(stored.getName(), product.getName()) && stored.getWeight() == product.getWeight();
+    }
+
+    private List<List<Event<Integer, Product>>> splitIntoRuns(List<Event<Integer, Product>> batch) {
+        List<List<Event<Integer, Product>>> runs = new ArrayList<>();
+        List<Event<Integer, Product>> run = null;
+
+        for (Event<Integer, Product> event : batch) {
+            if (run == null || run.get(0).getEventType() != event.getEventType()) {
+                run = new ArrayList<>();
+                runs.add(run);
+            }
+            run.add(event);
+        }
+        return runs;
+    }
+
+    private void sendToDlq(Event<Integer, Product> event, Throwable ex) {
+        try {
+            streamBridge.send("messageProcessorDlq-out-0", MessageBuilder.withPayload(event)
+                    .setHeader("x-exception-message", String.valueOf(ex.getMessage()))
+                    .setHeader("x-exception-type", ex.getClass().getName())
+                    .build());
+        } catch (RuntimeException dlqEx) {
+            log.error("Failed to send {} event with key: {} to the DLQ, the event is dropped: {}",
+                    event.getEventType(), event.getKey(), dlqEx.toString());
+        }
+    }
+}
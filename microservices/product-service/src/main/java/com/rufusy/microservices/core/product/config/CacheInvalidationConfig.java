@@ -0,0 +1,65 @@
+package com.rufusy.microservices.core.product.config;
+
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.core.product.cache.ProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Evicts products from the cache of every instance. The messageProcessor binding belongs to a consumer group, so each
+ * event reaches only one instance, the cacheInvalidator binding has no group and gets its own anonymous queue per instance.
+ * <p>
+ * The instance that processes the event may write to Mongo after another instance has evicted the product and
+ * loaded it again, the product is therefore evicted a second time after app.productCache.invalidationDelayMs.
+ * The time from the creation of the event to the eviction is published as cache.invalidation.lag.
+ * <p>
+ * Only created when the cache is enabled, the product_cache profile also adds the cacheInvalidator binding.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.productCache.enabled", havingValue = "true")
+public class CacheInvalidationConfig {
+    private final ProductCache productCache;
+    private final Timer invalidationLag;
+    private final Duration invalidationDelay;
+
+    public CacheInvalidationConfig(
+            ProductCache productCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.productCache.invalidationDelayMs:1000}") long invalidationDelayMs) {
+
+        this.productCache = productCache;
+        this.invalidationDelay = Duration.ofMillis(invalidationDelayMs);
+        this.invalidationLag = Timer.builder("cache.invalidation.lag")
+                .tag("cache", "productCache")
+                .description("Time from the creation of an event to the eviction of the product it changes")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Consumer<Event<Integer, Product>> cacheInvalidator() {
+        return event -> {
+            int productId = event.getKey();
+            log.debug("Evicts productId: {} on a {} event", productId, event.getEventType());
+
+            productCache.invalidate(productId);
+            if (event.getEventCreatedAt() != null) {
+                invalidationLag.record(Duration.between(event.getEventCreatedAt(), ZonedDateTime.now()));
+            }
+
+            Mono.delay(invalidationDelay).subscribe(tick -> productCache.invalidate(productId));
+        };
+    }
+}
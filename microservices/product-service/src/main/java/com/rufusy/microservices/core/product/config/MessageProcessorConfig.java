@@ -6,6 +6,7 @@ import com.rufusy.microservices.api.exceptions.EventProcessingException;
 import com.rufusy.microservices.core.product.service.ProductService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,6 +14,7 @@ import java.util.function.Consumer;
 
 @Slf4j
 @Configuration
+@ConditionalOnProperty(name = "app.messaging.consumerMode", havingValue = "blocking", matchIfMissing = true)
 public class MessageProcessorConfig {
     private final ProductService productService;
 
@@ -6,8 +6,11 @@ import com.rufusy.microservices.core.product.service.ProductService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 public class ProductController implements ProductResource {
@@ -23,6 +26,11 @@ public class ProductController implements ProductResource {
         return productService.getProduct(productId, delay, faultPercent);
     }
 
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        return productService.getProducts(productIds);
+    }
+
     @Override
     public Mono<Product> createProduct(Product body) {
         return productService.createProduct(body);
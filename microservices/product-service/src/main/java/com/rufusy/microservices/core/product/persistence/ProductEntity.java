@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,7 +14,13 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Setter
 @Getter
 @Document(collection = "products")
+@CompoundIndex(name = ProductEntity.API_INDEX, def = "{'productId': 1, 'name': 1, 'weight': 1}")
 public class ProductEntity {
+    /**
+     * Covers the fields of the API, reads of the API fields are served from the index without fetching the documents.
+     */
+    public static final String API_INDEX = "product-api";
+
     @Id
     private String id;
     @Version
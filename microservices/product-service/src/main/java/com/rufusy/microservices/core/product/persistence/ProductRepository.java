@@ -1,10 +1,29 @@
 package com.rufusy.microservices.core.product.persistence;
 
+import org.springframework.data.mongodb.repository.Hint;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface ProductRepository extends ReactiveCrudRepository<ProductEntity, String> {
+    /**
+     * The fields of the API, without _id the queries below are covered by the product-api index.
+     * The entities they return have no id and version, they are only used for reads.
+     */
+    String API_FIELDS = "{'_id': 0, 'productId': 1, 'name': 1, 'weight': 1}";
+
     Mono<ProductEntity> findByProductId(int productId);
+
+    @Query(value = "{'productId': ?0}", fields = API_FIELDS)
+    @Hint(ProductEntity.API_INDEX)
+    Mono<ProductEntity> findApiFieldsByProductId(int productId);
+
+    @Query(value = "{'productId': {$in: ?0}}", fields = API_FIELDS)
+    @Hint(ProductEntity.API_INDEX)
+    Flux<ProductEntity> findApiFieldsByProductIdIn(Collection<Integer> productIds);
 }
@@ -1,12 +1,28 @@
 package com.rufusy.microservices.core.product.service;
 
 import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ProductService {
     Mono<Product> getProduct(int productId, int delay, int faultPercent);
 
+    Flux<Product> getProducts(List<Integer> productIds);
+
     Mono<Product> createProduct(Product body);
 
     Mono<Void> deleteProductById(int productId);
+
+    /**
+     * Creates all products in one unordered bulk write.
+     *
+     * @return the items that could not be written, e.g. duplicates, an empty list if all were written
+     */
+    Mono<List<BulkWriteFailure>> createProducts(List<Product> bodies);
+
+    Mono<Void> deleteProductsById(Collection<Integer> productIds);
 }
@@ -1,22 +1,33 @@
 package com.rufusy.microservices.core.product.service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.rufusy.microservices.api.core.product.Product;
 import com.rufusy.microservices.api.exceptions.InvalidInputException;
 import com.rufusy.microservices.api.exceptions.NotFoundException;
+import com.rufusy.microservices.core.product.cache.ProductCache;
 import com.rufusy.microservices.core.product.mapper.ProductMapper;
 import com.rufusy.microservices.core.product.persistence.ProductEntity;
 import com.rufusy.microservices.core.product.persistence.ProductRepository;
+import com.rufusy.microservices.util.BulkWriteFailure;
 import com.rufusy.microservices.util.ServiceUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Random;
 
 import static java.util.logging.Level.FINE;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @Slf4j
 @Service
@@ -24,12 +35,24 @@ public class ProductServiceImpl implements ProductService {
     private final ServiceUtil serviceUtil;
     private final ProductRepository repository;
     private final ProductMapper mapper;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ProductCache productCache;
+
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
 
     @Autowired
-    public ProductServiceImpl(ServiceUtil serviceUtil, ProductRepository repository, ProductMapper mapper) {
+    public ProductServiceImpl(
+            ServiceUtil serviceUtil,
+            ProductRepository repository,
+            ProductMapper mapper,
+            ReactiveMongoTemplate mongoTemplate,
+            ProductCache productCache) {
+
         this.serviceUtil = serviceUtil;
         this.repository = repository;
         this.mapper = mapper;
+        this.mongoTemplate = mongoTemplate;
+        this.productCache = productCache;
     }
 
     @Override
@@ -39,7 +62,7 @@ public class ProductServiceImpl implements ProductService {
             throw new InvalidInputException("Invalid productId: " + productId);
         }
 
-        return repository.findByProductId(productId)
+        return productCache.get(productId, repository::findApiFieldsByProductId)
                 .map(e -> throwErrorIfBadLuck(e, faultPercent))
                 .delayElement(Duration.ofSeconds(delay))
                 .switchIfEmpty(Mono.error(new NotFoundException("No product found for productId: " + productId)))
@@ -48,6 +71,22 @@ public class ProductServiceImpl implements ProductService {
                 .map(this::setServiceAddress);
     }
 
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        log.debug("getProducts: fetching products for {} productIds", productIds.size());
+
+        return repository.findApiFieldsByProductIdIn(productIds)
+                .log(log.getName(), FINE)
+                .map(mapper::entityToApi)
+                .map(this::setServiceAddress);
+    }
+
     @Override
     public Mono<Product> createProduct(Product body) {
         ProductEntity entity = mapper.apiToEntity(body);
@@ -55,6 +94,7 @@ public class ProductServiceImpl implements ProductService {
                 .log(log.getName(), FINE)
                 .onErrorMap(DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
+                .doFinally(signal -> productCache.invalidate(body.getProductId()))
                 .map(mapper::entityToApi);
 
         log.debug("createProduct: entity created for productId: {}", body.getProductId());
@@ -68,7 +108,65 @@ public class ProductServiceImpl implements ProductService {
         return repository.findByProductId(productId)
                 .log(log.getName(), FINE)
                 .map(repository::delete)
-                .flatMap(e -> e);
+                .flatMap(e -> e)
+                .doFinally(signal -> productCache.invalidate(productId));
+    }
+
+    @Override
+    public Mono<List<BulkWriteFailure>> createProducts(List<Product> bodies) {
+        List<ProductEntity> entities = bodies.stream()
+                .map(body -> {
+                    ProductEntity entity = mapper.apiToEntity(body);
+                    // Initialize the version like repository.save() does for new entities
+                    entity.setVersion(0);
+                    return entity;
+                })
+                .toList();
+
+        return mongoTemplate.bulkOps(UNORDERED, ProductEntity.class)
+                .insert(entities)
+                .execute()
+                .doOnNext(result -> log.debug("createProducts: {} entities created", result.getInsertedCount()))
+                .thenReturn(List.<BulkWriteFailure>of())
+                .onErrorResume(ex -> findBulkWriteException(ex) != null,
+                        ex -> Mono.just(toFailures(bodies, findBulkWriteException(ex))))
+                .doFinally(signal -> productCache.invalidateAll(bodies.stream().map(Product::getProductId).toList()));
+    }
+
+    @Override
+    public Mono<Void> deleteProductsById(Collection<Integer> productIds) {
+        log.debug("deleteProducts: tries to delete entities for {} productIds", productIds.size());
+
+        return mongoTemplate.remove(query(where("productId").in(productIds)), ProductEntity.class)
+                .log(log.getName(), FINE)
+                .doFinally(signal -> productCache.invalidateAll(productIds))
+                .then();
+    }
+
+    private List<BulkWriteFailure> toFailures(List<Product> bodies, MongoBulkWriteException ex) {
+        log.debug("createProducts: {} of {} entities failed", ex.getWriteErrors().size(), bodies.size());
+
+        return ex.getWriteErrors().stream()
+                .map(error -> new BulkWriteFailure(error.getIndex(), toException(bodies.get(error.getIndex()), error),
+                        error.getCode() == DUPLICATE_KEY_ERROR_CODE))
+                .toList();
+    }
+
+    private RuntimeException toException(Product body, BulkWriteError error) {
+        if (error.getCode() == DUPLICATE_KEY_ERROR_CODE) {
+            return new InvalidInputException("Duplicate key, Product Id: " + body.getProductId());
+        }
+        return new RuntimeException("Failed to create product with Product Id: " + body.getProductId() + ", " + error.getMessage());
+    }
+
+    private MongoBulkWriteException findBulkWriteException(Throwable ex) {
+        // Depending on the errors, the bulk write exception is translated to different Spring exceptions, look for it as a cause
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException && !bulkWriteException.getWriteErrors().isEmpty()) {
+                return bulkWriteException;
+            }
+        }
+        return null;
     }
 
     private Product setServiceAddress(Product e) {
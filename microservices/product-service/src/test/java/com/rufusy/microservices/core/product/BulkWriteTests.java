@@ -0,0 +1,112 @@
+package com.rufusy.microservices.core.product;
+
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.product.persistence.ProductRepository;
+import com.rufusy.microservices.core.product.service.ProductService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BulkWriteTests extends MongoTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkWriteTests.class);
+
+    private static final int NUMBER_OF_EVENTS = 2000;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void duplicatesAreReportedPerItem() {
+        StepVerifier.create(productService.createProduct(product(2))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(productService.createProducts(List.of(product(1), product(2), product(3), product(3))))
+                .assertNext(failures -> {
+                    assertEquals(2, failures.size());
+                    assertEquals(List.of(1, 3), failures.stream().map(BulkWriteFailure::index).sorted().toList());
+                    failures.forEach(failure -> assertInstanceOf(InvalidInputException.class, failure.error()));
+                    failures.forEach(failure -> assertTrue(failure.duplicateKey()));
+                })
+                .verifyComplete();
+
+        assertEquals(3L, repository.count().block());
+    }
+
+    @Test
+    void deleteProductsById() {
+        StepVerifier.create(productService.createProducts(List.of(product(1), product(2), product(3))))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        StepVerifier.create(productService.deleteProductsById(List.of(1, 3, 4))).verifyComplete();
+
+        assertEquals(1L, repository.count().block());
+    }
+
+    /**
+     * Compares wall-clock times, excluded from the test task and run with: ./gradlew :microservices:product-service:loadTest
+     */
+    @Test
+    @Tag("load")
+    void bulkModeHasHigherThroughputThanPerEventMode() {
+        long perEventMillis = measure(Flux.range(1, NUMBER_OF_EVENTS)
+                .concatMap(i -> productService.createProduct(product(i)))
+                .then());
+        assertEquals(NUMBER_OF_EVENTS, repository.count().block());
+
+        repository.deleteAll().block();
+
+        long bulkMillis = measure(Flux.range(1, NUMBER_OF_EVENTS)
+                .map(this::product)
+                .buffer(BATCH_SIZE)
+                .concatMap(productService::createProducts)
+                .then());
+        assertEquals(NUMBER_OF_EVENTS, repository.count().block());
+
+        LOG.info("Created {} products, per event: {} ms ({} events/s), bulk with batches of {}: {} ms ({} events/s)",
+                NUMBER_OF_EVENTS,
+                perEventMillis, eventsPerSecond(perEventMillis),
+                BATCH_SIZE, bulkMillis, eventsPerSecond(bulkMillis));
+
+        assertTrue(bulkMillis < perEventMillis,
+                "Expected the bulk mode to be faster, per event: " + perEventMillis + " ms, bulk: " + bulkMillis + " ms");
+    }
+
+    private long measure(Mono<Void> work) {
+        long start = System.nanoTime();
+        work.block();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private long eventsPerSecond(long millis) {
+        return NUMBER_OF_EVENTS * 1000L / Math.max(millis, 1);
+    }
+
+    private Product product(int productId) {
+        return new Product(productId, "name " + productId, productId, "SA");
+    }
+}
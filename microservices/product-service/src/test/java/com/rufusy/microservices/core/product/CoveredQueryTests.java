@@ -0,0 +1,81 @@
+package com.rufusy.microservices.core.product;
+
+import com.rufusy.microservices.core.product.persistence.IndexInitializer;
+import com.rufusy.microservices.core.product.persistence.ProductEntity;
+import com.rufusy.microservices.core.product.persistence.ProductRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Verifies with explain plans that the reads of the API fields are served from the product-api index only.
+ */
+@DataMongoTest
+@Import(IndexInitializer.class)
+class CoveredQueryTests extends MongoTestBase {
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setupDb() {
+        StepVerifier.create(repository.deleteAll()).verifyComplete();
+        StepVerifier.create(repository.saveAll(Flux.range(1, 10).map(i -> new ProductEntity(i, "n" + i, i))))
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    void findApiFieldsByProductIdReadsNoDocuments() {
+        StepVerifier.create(repository.findApiFieldsByProductId(2))
+                .expectNextMatches(entity -> entity.getProductId() == 2
+                        && entity.getName().equals("n2")
+                        && entity.getWeight() == 2
+                        && entity.getId() == null
+                        && entity.getVersion() == null)
+                .verifyComplete();
+
+        assertCovered(explain(new Document("productId", 2)), 1);
+    }
+
+    @Test
+    void findApiFieldsByProductIdInReadsNoDocuments() {
+        StepVerifier.create(repository.findApiFieldsByProductIdIn(List.of(1, 3, 5)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertCovered(explain(new Document("productId", new Document("$in", List.of(1, 3, 5)))), 3);
+    }
+
+    /**
+     * Explains the find command the repository sends, with the same projection and hint.
+     */
+    private Document explain(Document filter) {
+        Document find = new Document("find", "products")
+                .append("filter", filter)
+                .append("projection", Document.parse(ProductRepository.API_FIELDS))
+                .append("hint", ProductEntity.API_INDEX);
+
+        return mongoTemplate.executeCommand(new Document("explain", find).append("verbosity", "executionStats")).block();
+    }
+
+    private void assertCovered(Document explain, int expectedResults) {
+        Document executionStats = explain.get("executionStats", Document.class);
+        assertEquals(expectedResults, executionStats.getInteger("nReturned"));
+        assertEquals(0, executionStats.getInteger("totalDocsExamined"), "Expected an index only plan, got: " + explain.toJson());
+        assertFalse(explain.get("queryPlanner", Document.class).toJson().contains("FETCH"), "Expected no FETCH stage, got: " + explain.toJson());
+    }
+}
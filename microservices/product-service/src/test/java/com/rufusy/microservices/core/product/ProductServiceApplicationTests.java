@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
 import java.util.function.Consumer;
 
@@ -19,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static reactor.core.publisher.Mono.just;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
@@ -58,6 +60,34 @@ class ProductServiceApplicationTests extends MongoTestBase {
                 .jsonPath("$.productId").isEqualTo(productId);
     }
 
+    @Test
+    void getProductsByIds() {
+        sendCreateProductEvent(1);
+        sendCreateProductEvent(2);
+        sendCreateProductEvent(3);
+
+        StepVerifier.create(client.get()
+                        .uri("/product?productIds=1,3,13")
+                        .accept(APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isEqualTo(OK)
+                        .returnResult(Product.class)
+                        .getResponseBody()
+                        .map(Product::getProductId)
+                        .sort())
+                .expectNext(1, 3)
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsByIdsInvalidParameterNegativeValue() {
+        client.get()
+                .uri("/product?productIds=1,-1")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY);
+    }
+
     @Test
     void getProductInvalidParameterString() {
 
@@ -0,0 +1,102 @@
+package com.rufusy.microservices.core.product.cache;
+
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.core.product.config.CacheInvalidationConfig;
+import com.rufusy.microservices.core.product.persistence.ProductEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rufusy.microservices.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductCacheTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProductCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductCache(meterRegistry, true, 100, 60);
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "productCache").gauge().value());
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+        cache.invalidate(1);
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loadInFlightDuringInvalidationIsNotStored() {
+        Sinks.One<ProductEntity> slowLoad = Sinks.one();
+        Mono<ProductEntity> first = cache.get(1, productId -> slowLoad.asMono());
+
+        StepVerifier.create(first)
+                .then(() -> {
+                    cache.invalidate(1);
+                    slowLoad.tryEmitValue(new ProductEntity(1, "stale", 1));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(cache.get(1, this::load))
+                .expectNextMatches(entity -> entity.getName().equals("n"))
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void notFoundIsNotCached() {
+        StepVerifier.create(cache.get(1, productId -> Mono.empty())).verifyComplete();
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void productEventOfAnotherInstanceEvictsTheProduct() {
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+        new CacheInvalidationConfig(cache, meterRegistry, 10).cacheInvalidator().accept(new Event<>(DELETE, 1, null));
+
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.get("cache.invalidation.lag").tag("cache", "productCache").timer().count());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        cache = new ProductCache(new SimpleMeterRegistry(), false, 100, 60);
+
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    private Mono<ProductEntity> load(int productId) {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return new ProductEntity(productId, "n", 1);
+        }).delayElement(Duration.ofMillis(1));
+    }
+}
@@ -0,0 +1,128 @@
+package com.rufusy.microservices.core.product.config;
+
+import com.rufusy.microservices.api.core.product.Product;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.product.service.ProductService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static com.rufusy.microservices.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkMessageProcessorConfigTests {
+    private final ProductService productService = mock(ProductService.class);
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final List<Event<Integer, Product>> deadLettered = new CopyOnWriteArrayList<>();
+
+    @Test
+    void runsOfTheSameEventTypeAreWrittenInOrder() {
+        when(productService.createProducts(anyList())).thenReturn(Mono.just(List.of()));
+        when(productService.deleteProductsById(anyList())).thenReturn(Mono.empty());
+
+        process(create(1), create(2), delete(1), create(3));
+
+        var inOrder = inOrder(productService);
+        inOrder.verify(productService).createProducts(argThat(products -> productIds(products).equals(List.of(1, 2))));
+        inOrder.verify(productService).deleteProductsById(List.of(1));
+        inOrder.verify(productService).createProducts(argThat(products -> productIds(products).equals(List.of(3))));
+    }
+
+    @Test
+    void failedItemsAreSentToTheDlq() {
+        when(productService.createProducts(anyList())).thenReturn(Mono.just(List.of(duplicate(1))));
+
+        process(create(1), create(2), create(3));
+
+        assertEquals(List.of(2), deadLetteredKeys());
+    }
+
+    @Test
+    void retryTakesDuplicatesStoredWithTheEventContentAsInserted() {
+        when(productService.createProducts(anyList())).thenReturn(
+                Mono.error(new IllegalStateException("Connection lost")),
+                Mono.just(List.of(duplicate(0), duplicate(1))));
+        // Product 1 was inserted by the failed attempt, product 2 existed before the run with other content
+        when(productService.getProducts(List.of(1, 2))).thenReturn(Flux.just(
+                product(1),
+                new Product(2, "other name", 2, null)));
+
+        process(create(1), create(2), create(3));
+
+        verify(productService, times(2)).createProducts(anyList());
+        assertEquals(List.of(2), deadLetteredKeys());
+    }
+
+    @Test
+    void duplicatesOfTheFirstAttemptAreSentToTheDlq() {
+        when(productService.createProducts(anyList())).thenReturn(Mono.just(List.of(duplicate(0))));
+
+        process(create(1));
+
+        assertEquals(List.of(1), deadLetteredKeys());
+    }
+
+    @Test
+    void runIsSentToTheDlqWhenTheRetriesAreExhausted() {
+        when(productService.createProducts(anyList())).thenReturn(Mono.error(new IllegalStateException("Connection lost")));
+
+        process(create(1), create(2));
+
+        verify(productService, times(3)).createProducts(anyList());
+        assertEquals(List.of(1, 2), deadLetteredKeys());
+    }
+
+    @SafeVarargs
+    private void process(Event<Integer, Product>... events) {
+        when(streamBridge.send(eq("messageProcessorDlq-out-0"), any())).thenAnswer(invocation -> {
+            Message<Event<Integer, Product>> message = invocation.getArgument(1);
+            deadLettered.add(message.getPayload());
+            return true;
+        });
+
+        BulkMessageProcessorConfig config = new BulkMessageProcessorConfig(productService, streamBridge, 10, 10, 3, 1, 1);
+        config.messageProcessor().apply(Flux.just(events)).block(Duration.ofSeconds(5));
+    }
+
+    private List<Integer> deadLetteredKeys() {
+        return deadLettered.stream().map(Event::getKey).toList();
+    }
+
+    private List<Integer> productIds(List<Product> products) {
+        return products.stream().map(Product::getProductId).toList();
+    }
+
+    private Event<Integer, Product> create(int productId) {
+        return new Event<>(CREATE, productId, product(productId));
+    }
+
+    private Event<Integer, Product> delete(int productId) {
+        return new Event<>(DELETE, productId, null);
+    }
+
+    private Product product(int productId) {
+        return new Product(productId, "name " + productId, productId, null);
+    }
+
+    private BulkWriteFailure duplicate(int index) {
+        return new BulkWriteFailure(index, new InvalidInputException("Duplicate key"), true);
+    }
+}
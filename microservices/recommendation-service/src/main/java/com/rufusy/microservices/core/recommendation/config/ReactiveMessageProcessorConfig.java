@@ -0,0 +1,96 @@
+package com.rufusy.microservices.core.recommendation.config;
+
+import com.rufusy.microservices.api.core.recommendation.Recommendation;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.EventProcessingException;
+import com.rufusy.microservices.core.recommendation.service.RecommendationService;
+import com.rufusy.microservices.util.ReactiveEventProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Non-blocking alternative to {@link MessageProcessorConfig}, enabled with app.messaging.consumerMode=reactive.
+ * <p>
+ * The binder doesn't retry or dead letter messages for reactive functions, so the retry settings of the
+ * messageProcessor-in-0 binding are applied here and failed events are sent to the DLQ via messageProcessorDlq-out-0.
+ * Messages are acknowledged on receipt, so the events that are prefetched or in flight when the consumer stops are lost,
+ * use the blocking mode where the events must be processed at-least-once, see {@link ReactiveEventProcessor}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.messaging.consumerMode", havingValue = "reactive")
+public class ReactiveMessageProcessorConfig {
+    private final RecommendationService recommendationService;
+    private final StreamBridge streamBridge;
+
+    @Autowired
+    public ReactiveMessageProcessorConfig(RecommendationService recommendationService, StreamBridge streamBridge) {
+        this.recommendationService = recommendationService;
+        this.streamBridge = streamBridge;
+    }
+
+    @Bean
+    public Function<Flux<Event<Integer, Recommendation>>, Mono<Void>> messageProcessor(
+            @Value("${app.messaging.concurrency:8}") int concurrency,
+            @Value("${app.messaging.prefetch:64}") int prefetch,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.maxAttempts:3}") int maxAttempts,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffInitialInterval:1000}") long backOffInitialInterval,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMaxInterval:10000}") long backOffMaxInterval,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMultiplier:2.0}") double backOffMultiplier) {
+
+        log.info("Creates a reactive messageProcessor with concurrency = {}, prefetch = {}, maxAttempts = {}",
+                concurrency, prefetch, maxAttempts);
+
+        ReactiveEventProcessor<Integer, Recommendation> processor = new ReactiveEventProcessor<>(
+                concurrency,
+                prefetch,
+                maxAttempts,
+                Duration.ofMillis(backOffInitialInterval),
+                Duration.ofMillis(backOffMaxInterval),
+                backOffMultiplier,
+                this::processEvent,
+                this::sendToDlq);
+
+        return processor::process;
+    }
+
+    private Mono<?> processEvent(Event<Integer, Recommendation> event) {
+        log.debug("Process message created at {}...", event.getEventCreatedAt());
+
+        switch (event.getEventType()) {
+            case CREATE -> {
+                Recommendation recommendation = event.getData();
+                log.debug("Create recommendation with ID: {}/{}", recommendation.getProductId(), recommendation.getRecommendationId());
+                return recommendationService.createRecommendation(recommendation);
+            }
+            case DELETE -> {
+                int productId = event.getKey();
+                log.debug("Delete recommendation with ProductID: {}", productId);
+                return recommendationService.deleteRecommendations(productId);
+            }
+            default -> {
+                String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE or DELETE event";
+                log.warn(errorMessage);
+                return Mono.error(new EventProcessingException(errorMessage));
+            }
+        }
+    }
+
+    private void sendToDlq(Event<Integer, Recommendation> event, Throwable ex) {
+        streamBridge.send("messageProcessorDlq-out-0", MessageBuilder.withPayload(event)
+                .setHeader("x-exception-message", String.valueOf(ex.getMessage()))
+                .setHeader("x-exception-type", ex.getClass().getName())
+                .build());
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 public class RecommendationController implements RecommendationResource {
@@ -20,8 +22,13 @@ public class RecommendationController implements RecommendationResource {
     }
 
     @Override
-    public Flux<Recommendation> getRecommendations(int productId) {
-        return service.getRecommendations(productId);
+    public Flux<Recommendation> getRecommendations(int productId, int afterId, int limit) {
+        return service.getRecommendations(productId, afterId, limit);
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsByProductIds(List<Integer> productIds) {
+        return service.getRecommendationsByProductIds(productIds);
     }
 
     @Override
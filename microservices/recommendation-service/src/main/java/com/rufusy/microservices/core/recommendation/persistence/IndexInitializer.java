@@ -0,0 +1,30 @@
+package com.rufusy.microservices.core.recommendation.persistence;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes of the RecommendationEntity at startup and waits for them, before requests and events are processed.
+ * The repository hints the {@value RecommendationEntity#API_INDEX} index, MongoDB rejects the queries while it does not exist.
+ */
+@Slf4j
+@Component
+public class IndexInitializer {
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public IndexInitializer(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void createIndexes() {
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(RecommendationEntity.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(RecommendationEntity.class)
+                .forEach(index -> log.info("Ensured index: {}", indexOps.ensureIndex(index).block()));
+    }
+}
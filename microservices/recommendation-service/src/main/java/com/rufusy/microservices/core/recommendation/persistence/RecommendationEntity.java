@@ -6,14 +6,23 @@ import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @NoArgsConstructor
 @Setter
 @Getter
 @Document(collection = "recommendations")
-@CompoundIndex(name = "prod-rec-id", unique = true, def = "{'productId': 1, 'recommendationId': 1}")
+@CompoundIndexes({
+        @CompoundIndex(name = "prod-rec-id", unique = true, def = "{'productId': 1, 'recommendationId': 1}"),
+        @CompoundIndex(name = RecommendationEntity.API_INDEX, def = "{'productId': 1, 'recommendationId': 1, 'author': 1, 'rating': 1, 'content': 1}")
+})
 public class RecommendationEntity {
+    /**
+     * Covers the fields of the API, reads of the API fields are served from the index without fetching the documents.
+     */
+    public static final String API_INDEX = "prod-rec-api";
+
     @Id
     private String id;
 
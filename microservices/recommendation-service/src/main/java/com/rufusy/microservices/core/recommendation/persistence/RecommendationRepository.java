@@ -1,10 +1,32 @@
 package com.rufusy.microservices.core.recommendation.persistence;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Hint;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 @Repository
 public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
+    /**
+     * The fields of the API, without _id the queries below are covered by the prod-rec-api index.
+     * The entities they return have no id and version, they are only used for reads.
+     */
+    String API_FIELDS = "{'_id': 0, 'productId': 1, 'recommendationId': 1, 'author': 1, 'rating': 1, 'content': 1}";
+
     Flux<RecommendationEntity> findByProductId(int productId);
+
+    /**
+     * Keyset pagination, served by the prod-rec-api index without skipping over the previous pages or fetching the documents.
+     */
+    @Query(value = "{'productId': ?0, 'recommendationId': {$gt: ?1}}", fields = API_FIELDS, sort = "{'recommendationId': 1}")
+    @Hint(RecommendationEntity.API_INDEX)
+    Flux<RecommendationEntity> findApiFieldsPage(int productId, int afterId, Limit limit);
+
+    @Query(value = "{'productId': {$in: ?0}}", fields = API_FIELDS)
+    @Hint(RecommendationEntity.API_INDEX)
+    Flux<RecommendationEntity> findApiFieldsByProductIdIn(Collection<Integer> productIds);
 }
@@ -9,7 +9,15 @@ import java.util.List;
 public interface RecommendationService {
     Mono<Recommendation> createRecommendation(Recommendation body);
 
-    Flux<Recommendation> getRecommendations(int productId);
+    /**
+     * Returns a page of recommendations ordered by recommendationId.
+     *
+     * @param afterId the last recommendationId of the previous page, 0 for the first page
+     * @param limit   the page size, 0 for the max page size
+     */
+    Flux<Recommendation> getRecommendations(int productId, int afterId, int limit);
+
+    Flux<Recommendation> getRecommendationsByProductIds(List<Integer> productIds);
 
     Mono<Void> deleteRecommendations(int productId);
 }
@@ -5,15 +5,20 @@ import com.rufusy.microservices.api.exceptions.InvalidInputException;
 import com.rufusy.microservices.core.recommendation.mapper.RecommendationMapper;
 import com.rufusy.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.rufusy.microservices.core.recommendation.persistence.RecommendationRepository;
+import com.rufusy.microservices.util.PageSizes;
 import com.rufusy.microservices.util.ServiceUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 import static java.util.logging.Level.FINE;
 
 @Slf4j
@@ -22,24 +27,53 @@ public class RecommendationServiceImpl implements RecommendationService {
     private final RecommendationRepository repository;
     private final ServiceUtil serviceUtil;
     private final RecommendationMapper mapper;
+    private final int maxPageSize;
 
     @Autowired
-    public RecommendationServiceImpl(RecommendationRepository repository, ServiceUtil serviceUtil, RecommendationMapper mapper) {
+    public RecommendationServiceImpl(
+            RecommendationRepository repository,
+            ServiceUtil serviceUtil,
+            RecommendationMapper mapper,
+            @Value("${app.pagination.maxPageSize:1000}") int maxPageSize) {
+
         this.repository = repository;
         this.serviceUtil = serviceUtil;
         this.mapper = mapper;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
-    public Flux<Recommendation> getRecommendations(int productId) {
-        log.debug("getRecommendations: fetching recommendations for productId: {}", productId);
+    public Flux<Recommendation> getRecommendations(int productId, int afterId, int limit) {
+        log.debug("getRecommendations: fetching recommendations for productId: {}, afterId: {}, limit: {}", productId, afterId, limit);
 
         if (productId < 1) {
             log.debug("getRecommendations: Invalid productId: {}", productId);
             throw new InvalidInputException("Invalid productId: " + productId);
         }
-        
-        return repository.findByProductId(productId)
+
+        int pageSize = PageSizes.pageSize(afterId, limit, maxPageSize);
+
+        return repository.findApiFieldsPage(productId, afterId, Limit.of(pageSize))
+                .log(log.getName(), FINE)
+                .map(mapper::entityToApi)
+                .map(e -> {
+                    e.setServiceAddress(serviceUtil.getServiceAddress());
+                    return e;
+                });
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsByProductIds(List<Integer> productIds) {
+        log.debug("getRecommendationsByProductIds: fetching recommendations for {} productIds", productIds.size());
+
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                log.debug("getRecommendationsByProductIds: Invalid productId: {}", productId);
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        return repository.findApiFieldsByProductIdIn(productIds)
                 .log(log.getName(), FINE)
                 .map(mapper::entityToApi)
                 .map(e -> {
@@ -0,0 +1,96 @@
+package com.rufusy.microservices.core.recommendation;
+
+import com.rufusy.microservices.core.recommendation.persistence.IndexInitializer;
+import com.rufusy.microservices.core.recommendation.persistence.RecommendationEntity;
+import com.rufusy.microservices.core.recommendation.persistence.RecommendationRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies with explain plans that the reads of the API fields are served from the prod-rec-api index only.
+ */
+@DataMongoTest
+@Import(IndexInitializer.class)
+class CoveredQueryTests extends MongoTestBase {
+    @Autowired
+    RecommendationRepository repository;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setupDB() {
+        repository.deleteAll().block();
+        repository.saveAll(Flux.concat(
+                        Flux.range(1, 10).map(i -> new RecommendationEntity(1, i, "a" + i, i % 5, "c" + i)),
+                        Flux.range(1, 3).map(i -> new RecommendationEntity(2, i, "a" + i, i % 5, "c" + i))))
+                .blockLast();
+    }
+
+    @Test
+    void findApiFieldsPageReadsNoDocuments() {
+        List<RecommendationEntity> page = repository.findApiFieldsPage(1, 3, Limit.of(4)).collectList().block();
+
+        assertNotNull(page);
+        assertEquals(List.of(4, 5, 6, 7), page.stream().map(RecommendationEntity::getRecommendationId).toList());
+        assertEquals("a4", page.get(0).getAuthor());
+        assertEquals(4, page.get(0).getRating());
+        assertEquals("c4", page.get(0).getContent());
+        assertNull(page.get(0).getId());
+        assertNull(page.get(0).getVersion());
+
+        Document explain = explain(new Document("productId", 1).append("recommendationId", new Document("$gt", 3)),
+                new Document("recommendationId", 1), 4);
+
+        assertCovered(explain, 4);
+        assertFalse(explain.toJson().contains("\"SORT\""), "Expected the order of the index to be used, got: " + explain.toJson());
+    }
+
+    @Test
+    void findApiFieldsByProductIdInReadsNoDocuments() {
+        List<RecommendationEntity> recommendations = repository.findApiFieldsByProductIdIn(List.of(1, 2)).collectList().block();
+
+        assertNotNull(recommendations);
+        assertEquals(13, recommendations.size());
+
+        assertCovered(explain(new Document("productId", new Document("$in", List.of(1, 2))), null, 0), 13);
+    }
+
+    /**
+     * Explains the find command the repository sends, with the same projection and hint.
+     */
+    private Document explain(Document filter, Document sort, int limit) {
+        Document find = new Document("find", "recommendations")
+                .append("filter", filter)
+                .append("projection", Document.parse(RecommendationRepository.API_FIELDS))
+                .append("hint", RecommendationEntity.API_INDEX);
+
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+
+        if (limit > 0) {
+            find.append("limit", limit);
+        }
+
+        return mongoTemplate.executeCommand(new Document("explain", find).append("verbosity", "executionStats")).block();
+    }
+
+    private void assertCovered(Document explain, int expectedResults) {
+        Document executionStats = explain.get("executionStats", Document.class);
+        assertEquals(expectedResults, executionStats.getInteger("nReturned"));
+        assertEquals(0, executionStats.getInteger("totalDocsExamined"), "Expected an index only plan, got: " + explain.toJson());
+        assertFalse(explain.get("queryPlanner", Document.class).toJson().contains("FETCH"), "Expected no FETCH stage, got: " + explain.toJson());
+    }
+}
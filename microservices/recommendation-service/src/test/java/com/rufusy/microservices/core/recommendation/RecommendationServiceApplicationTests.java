@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
 import java.util.function.Consumer;
 
@@ -17,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 class RecommendationServiceApplicationTests extends MongoTestBase {
@@ -57,6 +59,44 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
                 .jsonPath("$[2].recommendationId").isEqualTo(3);
     }
 
+    @Test
+    void getRecommendationsPageByProductId() {
+        int productId = 1;
+
+        for (int recommendationId = 1; recommendationId <= 5; recommendationId++) {
+            sendCreateRecommendationEvent(productId, recommendationId);
+        }
+
+        getAndVerifyRecommendationsByProductId("?productId=" + productId + "&afterId=2&limit=2", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].recommendationId").isEqualTo(3)
+                .jsonPath("$[1].recommendationId").isEqualTo(4);
+
+        StepVerifier.create(client.get()
+                        .uri("/recommendation?productId=" + productId + "&afterId=4")
+                        .accept(APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isEqualTo(OK)
+                        .returnResult(Recommendation.class)
+                        .getResponseBody())
+                .expectNextMatches(recommendation -> recommendation.getRecommendationId() == 5)
+                .verifyComplete();
+    }
+
+    @Test
+    void getRecommendationsInvalidAfterId() {
+        getAndVerifyRecommendationsByProductId("?productId=1&afterId=-1", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/recommendation")
+                .jsonPath("$.message").isEqualTo("Invalid afterId: -1");
+    }
+
+    @Test
+    void getRecommendationsLimitAboveMaxPageSize() {
+        getAndVerifyRecommendationsByProductId("?productId=1&limit=1001", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/recommendation")
+                .jsonPath("$.message").isEqualTo("Invalid limit: 1001, must be between 0 and 1000");
+    }
+
     @Test
     void getRecommendationsMissingParameter() {
         getAndVerifyRecommendationsByProductId("", BAD_REQUEST)
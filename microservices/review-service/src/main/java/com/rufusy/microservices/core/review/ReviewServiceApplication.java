@@ -1,5 +1,8 @@
 package com.rufusy.microservices.core.review;
 
+import com.rufusy.microservices.core.review.scheduler.JdbcSchedulers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
@@ -7,9 +10,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Hooks;
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 
 @Slf4j
 @SpringBootApplication
@@ -17,18 +20,27 @@ import reactor.core.scheduler.Schedulers;
 public class ReviewServiceApplication {
     private final Integer threadPoolSize;
     private final Integer taskQueueSize;
+    private final JdbcSchedulers.Mode jdbcSchedulerMode;
 
     public ReviewServiceApplication(
             @Value("${app.threadPoolSize:10}") Integer threadPoolSize,
-            @Value("${app.taskQueueSize:100}") Integer taskQueueSize) {
+            @Value("${app.taskQueueSize:100}") Integer taskQueueSize,
+            @Value("${app.jdbcScheduler.mode:platform}") String jdbcSchedulerMode) {
         this.threadPoolSize = threadPoolSize;
         this.taskQueueSize = taskQueueSize;
+        this.jdbcSchedulerMode = JdbcSchedulers.Mode.valueOf(jdbcSchedulerMode.toUpperCase());
     }
 
     @Bean
-    public Scheduler jdbcScheduler() {
-        log.info("Creates a jdbcScheduler with the thread pool size = {}", threadPoolSize);
-        return Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool");
+    public Scheduler jdbcScheduler(MeterRegistry meterRegistry) {
+        log.info("Creates a jdbcScheduler with mode = {}, thread pool size = {}", jdbcSchedulerMode, threadPoolSize);
+
+        // Tagged with the mode to make it possible to compare the modes under the same load
+        return Micrometer.timedScheduler(
+                JdbcSchedulers.create(jdbcSchedulerMode, threadPoolSize, taskQueueSize),
+                meterRegistry,
+                "review.jdbc.scheduler",
+                Tags.of("mode", jdbcSchedulerMode.name().toLowerCase()));
     }
 
     public static void main(String[] args) {
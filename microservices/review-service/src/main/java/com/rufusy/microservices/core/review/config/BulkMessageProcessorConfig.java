@@ -0,0 +1,192 @@
+package com.rufusy.microservices.core.review.config;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.EventProcessingException;
+import com.rufusy.microservices.core.review.service.ReviewService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static com.rufusy.microservices.api.event.Event.Type.DELETE;
+
+/**
+ * Bulk alternative to {@link MessageProcessorConfig}, enabled with app.messaging.consumerMode=bulk.
+ * <p>
+ * Events are collected into windows bounded by size and time. Each window is split into runs of events of the same type,
+ * keeping the order of the events. A run of creates is inserted in one transaction with batched inserts,
+ * a run of deletes with one DELETE statement.
+ * Items that fail, e.g. duplicates, are sent to the DLQ one by one, the rest of the run is kept.
+ * When a run is retried after the write failed as a whole, duplicates that are stored with the content of their
+ * event are taken as inserted by the earlier attempt.
+ * As in the reactive mode, messages are acknowledged on receipt, the events of a window that is not yet written
+ * when the consumer stops are lost.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.messaging.consumerMode", havingValue = "bulk")
+public class BulkMessageProcessorConfig {
+    private final ReviewService reviewService;
+    private final StreamBridge streamBridge;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final Retry retry;
+
+    @Autowired
+    public BulkMessageProcessorConfig(
+            ReviewService reviewService,
+            StreamBridge streamBridge,
+            @Value("${app.messaging.bulk.maxBatchSize:200}") int maxBatchSize,
+            @Value("${app.messaging.bulk.maxBatchDelayMs:100}") long maxBatchDelayMs,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.maxAttempts:3}") int maxAttempts,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffInitialInterval:1000}") long backOffInitialInterval,
+            @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMaxInterval:10000}") long backOffMaxInterval) {
+
+        this.reviewService = reviewService;
+        this.streamBridge = streamBridge;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = Duration.ofMillis(maxBatchDelayMs);
+        this.retry = Retry.backoff(maxAttempts - 1, Duration.ofMillis(backOffInitialInterval))
+                .maxBackoff(Duration.ofMillis(backOffMaxInterval))
+                .jitter(0);
+
+        log.info("Creates a bulk messageProcessor with maxBatchSize = {}, maxBatchDelayMs = {}, maxAttempts = {}",
+                maxBatchSize, maxBatchDelayMs, maxAttempts);
+    }
+
+    @Bean
+    public Function<Flux<Event<Integer, Review>>, Mono<Void>> messageProcessor() {
+        return events -> events
+                .bufferTimeout(maxBatchSize, maxBatchDelay, true)
+                .concatMap(this::processBatch)
+                .then();
+    }
+
+    private Mono<Void> processBatch(List<Event<Integer, Review>> batch) {
+        log.debug("Process a batch of {} events", batch.size());
+        return Flux.fromIterable(splitIntoRuns(batch))
+                .concatMap(this::processRun)
+                .then();
+    }
+
+    private Mono<Void> processRun(List<Event<Integer, Review>> run) {
+        Event.Type eventType = run.get(0).getEventType();
+
+        Mono<Void> write;
+        if (eventType == CREATE) {
+            log.debug("Create {} reviews", run.size());
+            AtomicInteger attempts = new AtomicInteger();
+            write = Mono.defer(() -> {
+                        boolean retried = attempts.getAndIncrement() > 0;
+                        return reviewService.createReviews(run.stream().map(Event::getData).toList())
+                                .flatMap(failures -> retried ? withoutEarlierInserts(run, failures) : Mono.just(failures))
+                                .doOnNext(failures -> failures.forEach(failure -> sendToDlq(run.get(failure.index()), failure.error())));
+                    })
+                    .then();
+
+        } else if (eventType == DELETE) {
+            log.debug("Delete reviews for {} productIds", run.size());
+            write = reviewService.deleteReviewsByProductIds(run.stream().map(Event::getKey).toList());
+
+        } else {
+            String errorMessage = "Incorrect event type: " + eventType + ", expected a CREATE or DELETE event";
+            log.warn(errorMessage);
+            run.forEach(event -> sendToDlq(event, new EventProcessingException(errorMessage)));
+            return Mono.empty();
+        }
+
+        // Errors that fail the whole bulk write, e.g. a lost connection, are retried before the run is dead lettered
+        return write
+                .retryWhen(retry)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to process a run of {} {} events, will send them to the DLQ: {}", run.size(), eventType, ex.toString());
+                    run.forEach(event -> sendToDlq(event, ex));
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * A write that failed as a whole, e.g. while the reviews were written one by one after a constraint violation,
+     * may have inserted some of the reviews, its retry fails on them as duplicates.
+     * Duplicates that are stored with the content of their event are taken as inserted by the earlier attempt,
+     * other duplicates, e.g. of reviews that existed before the run, are still failures.
+     */
+    private Mono<List<BulkWriteFailure>> withoutEarlierInserts(List<Event<Integer, Review>> run, List<BulkWriteFailure> failures) {
+        List<Integer> duplicateProductIds = failures.stream()
+                .filter(BulkWriteFailure::duplicateKey)
+                .map(failure -> run.get(failure.index()).getData().getProductId())
+                .distinct()
+                .toList();
+        if (duplicateProductIds.isEmpty()) {
+            return Mono.just(failures);
+        }
+
+        return reviewService.getReviewsByProductIds(duplicateProductIds)
+                .collectMap(review -> key(review.getProductId(), review.getReviewId()))
+                .map(stored -> failures.stream()
+                        .filter(failure -> {
+                            Review review = run.get(failure.index()).getData();
+                            boolean insertedEarlier = failure.duplicateKey()
+                                    && sameContent(stored.get(key(review.getProductId(), review.getReviewId())), review);
+                            if (insertedEarlier) {
+                                log.debug("Review {}/{} was created by an earlier attempt", review.getProductId(), review.getReviewId());
+                            }
+                            return !insertedEarlier;
+                        })
+                        .toList());
+    }
+
+    private String key(int productId, int reviewId) {
+        return productId + "/" + reviewId;
+    }
+
+    private boolean sameContent(Review stored, Review review) {
+        return stored != null
+                && Objects.equals(stored.getAuthor(), review.getAuthor())
+                && Objects.equals(stored.getSubject(), review.getSubject())
+                && Objects.equals(stored.getContent(), review.getContent());
+    }
+
+    private List<List<Event<Integer, Review>>> splitIntoRuns(List<Event<Integer, Review>> batch) {
+        List<List<Event<Integer, Review>>> runs = new ArrayList<>();
+        List<Event<Integer, Review>> run = null;
+
+        for (Event<Integer, Review> event : batch) {
+            if (run == null || run.get(0).getEventType() != event.getEventType()) {
+                run = new ArrayList<>();
+                runs.add(run);
+            }
+            run.add(event);
+        }
+        return runs;
+    }
+
+    private void sendToDlq(Event<Integer, Review> event, Throwable ex) {
+        try {
+            streamBridge.send("messageProcessorDlq-out-0", MessageBuilder.withPayload(event)
+                    .setHeader("x-exception-message", String.valueOf(ex.getMessage()))
+                    .setHeader("x-exception-type", ex.getClass().getName())
+                    .build());
+        } catch (RuntimeException dlqEx) {
+            log.error("Failed to send {} event with key: {} to the DLQ, the event is dropped: {}",
+                    event.getEventType(), event.getKey(), dlqEx.toString());
+        }
+    }
+}
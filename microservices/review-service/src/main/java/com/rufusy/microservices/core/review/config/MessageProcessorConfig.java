@@ -5,12 +5,14 @@ import com.rufusy.microservices.api.event.Event;
 import com.rufusy.microservices.api.exceptions.EventProcessingException;
 import com.rufusy.microservices.core.review.service.ReviewService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.function.Consumer;
 
 @Configuration
+@ConditionalOnProperty(name = "app.messaging.consumerMode", havingValue = "blocking", matchIfMissing = true)
 @Slf4j
 public class MessageProcessorConfig {
     private final ReviewService reviewService;
@@ -8,6 +8,8 @@ import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 public class ReviewController implements ReviewResource {
@@ -18,8 +20,13 @@ public class ReviewController implements ReviewResource {
     }
 
     @Override
-    public Flux<Review> getReviews(int productId) {
-        return service.getReviews(productId);
+    public Flux<Review> getReviews(int productId, int afterId, int limit) {
+        return service.getReviews(productId, afterId, limit);
+    }
+
+    @Override
+    public Flux<Review> getReviewsByProductIds(List<Integer> productIds) {
+        return service.getReviewsByProductIds(productIds);
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.rufusy.microservices.core.review.mapper;
 
 import com.rufusy.microservices.api.core.review.Review;
 import com.rufusy.microservices.core.review.persistence.ReviewEntity;
+import com.rufusy.microservices.core.review.persistence.ReviewRecord;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
@@ -24,4 +25,15 @@ public interface ReviewMapper {
     List<Review> entityListToApiList(List<ReviewEntity> entity);
 
     List<ReviewEntity> apiListToEntityList(List<Review> api);
+
+    @Mappings({
+            @Mapping(target = "serviceAddress", ignore = true)
+    })
+    Review recordToApi(ReviewRecord record);
+
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "version", ignore = true)
+    })
+    ReviewRecord apiToRecord(Review api);
 }
@@ -0,0 +1,24 @@
+package com.rufusy.microservices.core.review.persistence;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface ReactiveReviewRepository extends ReactiveCrudRepository<ReviewRecord, Integer> {
+    Flux<ReviewRecord> findByProductId(int productId);
+
+    Flux<ReviewRecord> findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(int productId, int afterId, Limit limit);
+
+    Flux<ReviewRecord> findByProductIdIn(Collection<Integer> productIds);
+
+    @Modifying
+    @Query("DELETE FROM reviews WHERE product_id IN (:productIds)")
+    Mono<Integer> deleteByProductIdIn(Collection<Integer> productIds);
+}
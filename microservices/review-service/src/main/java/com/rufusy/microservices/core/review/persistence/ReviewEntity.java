@@ -13,8 +13,10 @@ import lombok.Setter;
         @Index(name = "reviews_unique_idx", unique = true, columnList = "productId,reviewId")
 })
 public class ReviewEntity {
+    // Pooled allocation, one sequence call per 50 inserts, keeps inserts batchable
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "review_seq")
+    @SequenceGenerator(name = "review_seq", sequenceName = "ReviewEntity_SEQ", allocationSize = 50)
     private Integer id;
 
     @Version
@@ -0,0 +1,37 @@
+package com.rufusy.microservices.core.review.persistence;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * R2DBC mapping of the reviews table, used instead of {@link ReviewEntity} when the r2dbc profile is active.
+ */
+@NoArgsConstructor
+@Setter
+@Getter
+@Table("reviews")
+public class ReviewRecord {
+    @Id
+    private Integer id;
+
+    @Version
+    private Integer version;
+
+    private int productId;
+    private int reviewId;
+    private String author;
+    private String subject;
+    private String content;
+
+    public ReviewRecord(int productId, int reviewId, String author, String subject, String content) {
+        this.productId = productId;
+        this.reviewId = reviewId;
+        this.author = author;
+        this.subject = subject;
+        this.content = content;
+    }
+}
@@ -0,0 +1,34 @@
+package com.rufusy.microservices.core.review.scheduler;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the scheduler that the blocking JPA calls of the review service run on.
+ */
+public final class JdbcSchedulers {
+    public enum Mode {
+        /**
+         * A bounded elastic pool of platform threads, tasks beyond threadPoolSize + taskQueueSize are rejected.
+         */
+        PLATFORM,
+        /**
+         * One virtual thread per task, a blocked JDBC call parks its virtual thread and releases the carrier thread.
+         * The concurrency is only limited by the size of the connection pool.
+         */
+        VIRTUAL
+    }
+
+    private JdbcSchedulers() {
+    }
+
+    public static Scheduler create(Mode mode, int threadPoolSize, int taskQueueSize) {
+        return switch (mode) {
+            case PLATFORM -> Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool");
+            case VIRTUAL -> Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jdbc-virtual-", 0).factory()), "jdbc-virtual");
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.rufusy.microservices.core.review.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Detects virtual threads that are pinned to their carrier thread, e.g. when a JDBC driver blocks inside a synchronized block.
+ * A pinned virtual thread blocks its carrier thread, so pinning in the JDBC path cancels out the benefit of virtual threads.
+ * <p>
+ * Listens to the jdk.VirtualThreadPinned JFR event and reports it as metrics and a log entry with the top frames.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jdbcScheduler.mode", havingValue = "virtual")
+public class VirtualThreadPinningMonitor {
+    private static final int LOGGED_FRAMES = 5;
+
+    private final RecordingStream recordingStream;
+    private final Counter pinnedCounter;
+    private final Timer pinnedTimer;
+
+    @Autowired
+    public VirtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${app.jdbcScheduler.pinnedThresholdMs:20}") long pinnedThresholdMs) {
+
+        this.pinnedCounter = Counter.builder("review.jdbc.virtualthreads.pinned")
+                .description("Number of times a virtual thread was pinned to its carrier thread for longer than the threshold")
+                .register(meterRegistry);
+        this.pinnedTimer = Timer.builder("review.jdbc.virtualthreads.pinned.duration")
+                .description("Time virtual threads were pinned to their carrier thread")
+                .register(meterRegistry);
+
+        this.recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned")
+                .withThreshold(Duration.ofMillis(pinnedThresholdMs))
+                .withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recordingStream.startAsync();
+
+        log.info("Monitors pinned virtual threads, threshold = {} ms", pinnedThresholdMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        recordingStream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        pinnedTimer.record(event.getDuration());
+
+        if (log.isWarnEnabled()) {
+            List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+            StringBuilder stack = new StringBuilder();
+            frames.stream().limit(LOGGED_FRAMES).forEach(frame -> stack.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber()));
+
+            log.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), stack);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.rufusy.microservices.core.review.service;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.review.mapper.ReviewMapper;
+import com.rufusy.microservices.core.review.persistence.ReactiveReviewRepository;
+import com.rufusy.microservices.core.review.persistence.ReviewRecord;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import com.rufusy.microservices.util.PageSizes;
+import com.rufusy.microservices.util.ServiceUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * Non-blocking implementation of the review service based on R2DBC, enabled with the r2dbc profile.
+ * Unlike {@link ReviewServiceImpl} it doesn't use the jdbcScheduler, the number of concurrent requests
+ * is only limited by the R2DBC connection pool.
+ */
+@Slf4j
+@Service
+@Profile("r2dbc")
+public class ReactiveReviewServiceImpl implements ReviewService {
+    private final ReactiveReviewRepository repository;
+    private final ReviewMapper mapper;
+    private final ServiceUtil serviceUtil;
+    private final TransactionalOperator transactionalOperator;
+    private final int maxPageSize;
+
+    public ReactiveReviewServiceImpl(
+            ReactiveReviewRepository repository,
+            ReviewMapper mapper,
+            ServiceUtil serviceUtil,
+            TransactionalOperator transactionalOperator,
+            @Value("${app.pagination.maxPageSize:1000}") int maxPageSize) {
+
+        this.repository = repository;
+        this.mapper = mapper;
+        this.serviceUtil = serviceUtil;
+        this.transactionalOperator = transactionalOperator;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public Mono<Review> createReview(Review body) {
+        if (body.getProductId() < 1) {
+            throw new InvalidInputException("Invalid productId: " + body.getProductId());
+        }
+
+        return repository.save(mapper.apiToRecord(body))
+                .log(log.getName(), FINE)
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new InvalidInputException(
+                        "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()))
+                .doOnNext(r -> log.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId()))
+                .map(mapper::recordToApi);
+    }
+
+    @Override
+    public Flux<Review> getReviews(int productId, int afterId, int limit) {
+        if (productId < 1) {
+            log.debug("Invalid productId: {}", productId);
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+
+        int pageSize = PageSizes.pageSize(afterId, limit, maxPageSize);
+
+        log.info("Will get reviews for product with id={}, afterId={}, limit={}", productId, afterId, pageSize);
+
+        return repository.findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(productId, afterId, Limit.of(pageSize))
+                .log(log.getName(), FINE)
+                .map(this::toApi);
+    }
+
+    @Override
+    public Flux<Review> getReviewsByProductIds(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                log.debug("Invalid productId: {}", productId);
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        log.info("Will get reviews for {} products", productIds.size());
+
+        return repository.findByProductIdIn(productIds)
+                .log(log.getName(), FINE)
+                .map(this::toApi);
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        if (productId < 1) {
+            log.debug("Invalid productId: {}", productId);
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+
+        log.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+        return repository.deleteByProductIdIn(List.of(productId)).then();
+    }
+
+    @Override
+    public Mono<List<BulkWriteFailure>> createReviews(List<Review> bodies) {
+        List<BulkWriteFailure> failures = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < bodies.size(); i++) {
+            if (bodies.get(i).getProductId() < 1) {
+                failures.add(new BulkWriteFailure(i, new InvalidInputException("Invalid productId: " + bodies.get(i).getProductId()), false));
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        List<ReviewRecord> records = validIndexes.stream().map(i -> mapper.apiToRecord(bodies.get(i))).toList();
+
+        return repository.saveAll(records)
+                .as(transactionalOperator::transactional)
+                .then(Mono.fromSupplier(() -> {
+                    log.debug("createReviews: created {} review entities", records.size());
+                    return failures;
+                }))
+                // The whole batch is rolled back, write the reviews one by one to find the offending ones
+                .onErrorResume(DataIntegrityViolationException.class, ex -> Flux.fromIterable(validIndexes)
+                        .concatMap(i -> createReview(bodies.get(i))
+                                .then(Mono.<BulkWriteFailure>empty())
+                                .onErrorResume(InvalidInputException.class, iie -> Mono.just(new BulkWriteFailure(i, iie, true))))
+                        .collectList()
+                        .map(duplicates -> {
+                            List<BulkWriteFailure> all = new ArrayList<>(failures);
+                            all.addAll(duplicates);
+                            return all;
+                        }));
+    }
+
+    @Override
+    public Mono<Void> deleteReviewsByProductIds(Collection<Integer> productIds) {
+        return repository.deleteByProductIdIn(productIds)
+                .doOnNext(deleted -> log.debug("deleteReviewsByProductIds: deleted {} reviews for {} productIds", deleted, productIds.size()))
+                .then();
+    }
+
+    private Review toApi(ReviewRecord record) {
+        Review review = mapper.recordToApi(record);
+        review.setServiceAddress(serviceUtil.getServiceAddress());
+        return review;
+    }
+}
@@ -1,13 +1,35 @@
 package com.rufusy.microservices.core.review.service;
 
 import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.util.BulkWriteFailure;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ReviewService {
     Mono<Review> createReview(Review body);
 
-    Flux<Review> getReviews(int productId);
+    /**
+     * Returns a page of reviews ordered by reviewId.
+     *
+     * @param afterId the last reviewId of the previous page, 0 for the first page
+     * @param limit   the page size, 0 for the max page size
+     */
+    Flux<Review> getReviews(int productId, int afterId, int limit);
+
+    Flux<Review> getReviewsByProductIds(List<Integer> productIds);
 
     Mono<Void> deleteReviews(int productId);
+
+    /**
+     * Creates all reviews in one transaction using batched inserts.
+     * If the batch fails on a constraint, the reviews are written one by one, an error while doing so can leave a part of them inserted.
+     *
+     * @return the items that could not be written, e.g. duplicates, an empty list if all were written
+     */
+    Mono<List<BulkWriteFailure>> createReviews(List<Review> bodies);
+
+    Mono<Void> deleteReviewsByProductIds(Collection<Integer> productIds);
 }
@@ -5,33 +5,53 @@ import com.rufusy.microservices.api.exceptions.InvalidInputException;
 import com.rufusy.microservices.core.review.mapper.ReviewMapper;
 import com.rufusy.microservices.core.review.persistence.ReviewEntity;
 import com.rufusy.microservices.core.review.persistence.ReviewRepository;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import com.rufusy.microservices.util.PageSizes;
 import com.rufusy.microservices.util.ServiceUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static java.util.logging.Level.FINE;
 
 @Slf4j
 @Service
+@Profile("!r2dbc")
 public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository repository;
     private final ReviewMapper mapper;
     private final ServiceUtil serviceUtil;
 
     private final Scheduler jdbcScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPageSize;
+
+    public ReviewServiceImpl(
+            ReviewRepository repository,
+            ReviewMapper mapper,
+            ServiceUtil serviceUtil,
+            Scheduler jdbcScheduler,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.pagination.maxPageSize:1000}") int maxPageSize) {
 
-    public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil, Scheduler jdbcScheduler) {
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
         this.jdbcScheduler = jdbcScheduler;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPageSize = maxPageSize;
     }
 
     @Transactional
@@ -60,24 +80,27 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     @Override
-    public Flux<Review> getReviews(int productId) {
+    public Flux<Review> getReviews(int productId, int afterId, int limit) {
 
         if (productId < 1) {
             log.debug("Invalid productId: {}", productId);
             throw new InvalidInputException("Invalid productId: " + productId);
         }
 
-        log.info("Will get reviews for product with id={}", productId);
+        int pageSize = PageSizes.pageSize(afterId, limit, maxPageSize);
+
+        log.info("Will get reviews for product with id={}, afterId={}, limit={}", productId, afterId, pageSize);
 
-        return Mono.fromCallable(() -> internalGetReviews(productId))
+        return Mono.fromCallable(() -> internalGetReviews(productId, afterId, pageSize))
                 .flatMapMany(Flux::fromIterable)
                 .log(log.getName(), FINE)
                 .subscribeOn(jdbcScheduler);
     }
 
-    private List<Review> internalGetReviews(int productId) {
+    private List<Review> internalGetReviews(int productId, int afterId, int pageSize) {
 
-        List<ReviewEntity> entityList = repository.findByProductId(productId);
+        // Only one page is loaded, keeps the memory used per request bounded by the max page size
+        List<ReviewEntity> entityList = repository.findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(productId, afterId, Limit.of(pageSize));
         List<Review> list = mapper.entityListToApiList(entityList);
         list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
@@ -85,6 +108,33 @@ public class ReviewServiceImpl implements ReviewService {
         return list;
     }
 
+    @Override
+    public Flux<Review> getReviewsByProductIds(List<Integer> productIds) {
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                log.debug("Invalid productId: {}", productId);
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        log.info("Will get reviews for {} products", productIds.size());
+
+        return Mono.fromCallable(() -> internalGetReviewsByProductIds(productIds))
+                .flatMapMany(Flux::fromIterable)
+                .log(log.getName(), FINE)
+                .subscribeOn(jdbcScheduler);
+    }
+
+    private List<Review> internalGetReviewsByProductIds(List<Integer> productIds) {
+
+        List<ReviewEntity> entityList = repository.findByProductIdIn(productIds);
+        List<Review> list = mapper.entityListToApiList(entityList);
+        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+        log.debug("getReviewsByProductIds: response size: {}", list.size());
+        return list;
+    }
+
     @Transactional
     @Override
     public Mono<Void> deleteReviews(int productId) {
@@ -100,6 +150,55 @@ public class ReviewServiceImpl implements ReviewService {
     private void internalDeleteReviews(int productId){
         log.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
 
-        repository.deleteAll(repository.findByProductId(productId));
+        repository.deleteByProductIdIn(List.of(productId));
+    }
+
+    @Override
+    public Mono<List<BulkWriteFailure>> createReviews(List<Review> bodies) {
+        return Mono.fromCallable(() -> internalCreateReviews(bodies))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    private List<BulkWriteFailure> internalCreateReviews(List<Review> bodies) {
+        List<BulkWriteFailure> failures = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < bodies.size(); i++) {
+            if (bodies.get(i).getProductId() < 1) {
+                failures.add(new BulkWriteFailure(i, new InvalidInputException("Invalid productId: " + bodies.get(i).getProductId()), false));
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        try {
+            List<ReviewEntity> entities = validIndexes.stream().map(i -> mapper.apiToEntity(bodies.get(i))).toList();
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(entities));
+
+            log.debug("createReviews: created {} review entities", entities.size());
+
+        } catch (DataIntegrityViolationException dive) {
+            // The whole batch is rolled back, write the reviews one by one to find the offending ones
+            log.debug("createReviews: batch insert failed, falls back to one insert per review: {}", dive.getMessage());
+
+            for (int i : validIndexes) {
+                try {
+                    internalCreateReview(bodies.get(i));
+                } catch (InvalidInputException iie) {
+                    failures.add(new BulkWriteFailure(i, iie, true));
+                }
+            }
+        }
+
+        return failures;
+    }
+
+    @Override
+    public Mono<Void> deleteReviewsByProductIds(Collection<Integer> productIds) {
+        return Mono.fromRunnable(() -> {
+                    int deleted = repository.deleteByProductIdIn(productIds);
+                    log.debug("deleteReviewsByProductIds: deleted {} reviews for {} productIds", deleted, productIds.size());
+                })
+                .subscribeOn(jdbcScheduler).then();
     }
 }
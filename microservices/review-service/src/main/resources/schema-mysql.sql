@@ -0,0 +1,14 @@
+-- Schema used by the r2dbc profile, with the JPA implementation the schema is created by Hibernate
+CREATE TABLE IF NOT EXISTS reviews (
+    id INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    version INTEGER,
+    product_id INTEGER NOT NULL,
+    review_id INTEGER NOT NULL,
+    author VARCHAR(255),
+    subject VARCHAR(255),
+    content VARCHAR(255),
+    UNIQUE INDEX reviews_unique_idx (product_id, review_id)
+);
+
+-- Tables created by Hibernate have no auto increment on the id column
+ALTER TABLE reviews MODIFY id INTEGER NOT NULL AUTO_INCREMENT;
@@ -0,0 +1,17 @@
+-- Schema used by the r2dbc profile, with the JPA implementation the schema is created by Hibernate
+CREATE SEQUENCE IF NOT EXISTS review_entity_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS reviews (
+    id INTEGER NOT NULL DEFAULT nextval('review_entity_seq') PRIMARY KEY,
+    version INTEGER,
+    product_id INTEGER NOT NULL,
+    review_id INTEGER NOT NULL,
+    author VARCHAR(255),
+    subject VARCHAR(255),
+    content VARCHAR(255)
+);
+
+-- Tables created by Hibernate have no default for the id column
+ALTER TABLE reviews ALTER COLUMN id SET DEFAULT nextval('review_entity_seq');
+
+CREATE UNIQUE INDEX IF NOT EXISTS reviews_unique_idx ON reviews (product_id, review_id);
@@ -0,0 +1,74 @@
+package com.rufusy.microservices.core.review;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.review.persistence.ReviewRepository;
+import com.rufusy.microservices.core.review.service.ReviewService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest
+class BulkWriteTests extends PostgresTestBase {
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void createReviews() {
+        List<Review> reviews = IntStream.rangeClosed(1, 120).mapToObj(i -> review(1 + i % 3, i)).toList();
+
+        StepVerifier.create(reviewService.createReviews(reviews))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        assertEquals(120, repository.count());
+    }
+
+    @Test
+    void duplicatesAreReportedPerItem() {
+        StepVerifier.create(reviewService.createReview(review(1, 2))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(reviewService.createReviews(List.of(review(1, 1), review(1, 2), review(1, 3), review(-1, 1))))
+                .assertNext(failures -> {
+                    assertEquals(List.of(1, 3), failures.stream().map(BulkWriteFailure::index).sorted().toList());
+                    failures.forEach(failure -> assertInstanceOf(InvalidInputException.class, failure.error()));
+                    assertEquals(List.of(1), failures.stream().filter(BulkWriteFailure::duplicateKey).map(BulkWriteFailure::index).toList());
+                })
+                .verifyComplete();
+
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void deleteReviewsByProductIds() {
+        StepVerifier.create(reviewService.createReviews(List.of(review(1, 1), review(1, 2), review(2, 1), review(3, 1))))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        StepVerifier.create(reviewService.deleteReviewsByProductIds(List.of(1, 3))).verifyComplete();
+
+        assertEquals(1, repository.count());
+        assertEquals(1, repository.findByProductId(2).size());
+    }
+
+    private Review review(int productId, int reviewId) {
+        return new Review(productId, reviewId, "a", "s", "c", "SA");
+    }
+}
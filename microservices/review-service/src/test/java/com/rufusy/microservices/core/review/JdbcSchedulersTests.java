@@ -0,0 +1,82 @@
+package com.rufusy.microservices.core.review;
+
+import com.rufusy.microservices.core.review.scheduler.JdbcSchedulers;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rufusy.microservices.core.review.scheduler.JdbcSchedulers.Mode.PLATFORM;
+import static com.rufusy.microservices.core.review.scheduler.JdbcSchedulers.Mode.VIRTUAL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcSchedulersTests {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSchedulersTests.class);
+
+    private static final int THREAD_POOL_SIZE = 10;
+    private static final int TASK_QUEUE_SIZE = 100;
+    private static final int CONCURRENT_CALLS = 300;
+    private static final Duration BLOCKING_TIME = Duration.ofMillis(50);
+
+    @Test
+    void platformModeRejectsCallsBeyondPoolAndQueue() {
+        Result result = runBlockingLoad(PLATFORM);
+
+        assertTrue(result.rejected() > 0, "Expected rejected calls in platform mode");
+        assertEquals(CONCURRENT_CALLS, result.completed() + result.rejected());
+    }
+
+    @Test
+    void virtualModeRunsAllCallsConcurrently() {
+        Result platform = runBlockingLoad(PLATFORM);
+        Result virtual = runBlockingLoad(VIRTUAL);
+
+        LOG.info("{} blocking calls of {} ms, platform: {} completed, {} rejected in {} ms, virtual: {} completed in {} ms",
+                CONCURRENT_CALLS, BLOCKING_TIME.toMillis(),
+                platform.completed(), platform.rejected(), platform.millis(),
+                virtual.completed(), virtual.millis());
+
+        assertEquals(CONCURRENT_CALLS, virtual.completed());
+        assertEquals(0, virtual.rejected());
+        assertTrue(virtual.millis() < platform.millis(),
+                "Expected virtual mode to be faster, platform: " + platform.millis() + " ms, virtual: " + virtual.millis() + " ms");
+    }
+
+    private Result runBlockingLoad(JdbcSchedulers.Mode mode) {
+        Scheduler scheduler = JdbcSchedulers.create(mode, THREAD_POOL_SIZE, TASK_QUEUE_SIZE);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        try {
+            long start = System.nanoTime();
+            Flux.range(0, CONCURRENT_CALLS)
+                    .flatMap(i -> Mono.fromCallable(this::simulateJdbcCall)
+                            .subscribeOn(scheduler)
+                            .doOnNext(r -> completed.incrementAndGet())
+                            .onErrorResume(RejectedExecutionException.class, ex -> {
+                                rejected.incrementAndGet();
+                                return Mono.empty();
+                            }), CONCURRENT_CALLS)
+                    .blockLast(Duration.ofSeconds(30));
+
+            return new Result(completed.get(), rejected.get(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private Boolean simulateJdbcCall() throws InterruptedException {
+        Thread.sleep(BLOCKING_TIME);
+        return true;
+    }
+
+    private record Result(int completed, int rejected, long millis) {
+    }
+}
@@ -63,6 +63,18 @@ public class PersistenceTests extends PostgresTestBase {
         assertFalse(repository.existsById(savedEntity.getId()));
     }
 
+    @Test
+    void deleteByProductIds() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+        repository.save(new ReviewEntity(3, 1, "a", "s", "c"));
+
+        assertEquals(3, repository.deleteByProductIdIn(List.of(1, 2)));
+
+        assertEquals(1, repository.count());
+        assertThat(repository.findByProductId(3), hasSize(1));
+    }
+
     @Test
     void getByProductId() {
         List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
@@ -18,5 +18,12 @@ public abstract class PostgresTestBase {
         registry.add("spring.datasource.url", database::getJdbcUrl);
         registry.add("spring.datasource.username", database::getUsername);
         registry.add("spring.datasource.password", database::getPassword);
+
+        // Used by the r2dbc profile
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + database.getHost() + ":"
+                + database.getFirstMappedPort() + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+        registry.add("spring.sql.init.platform", () -> "postgresql");
     }
 }
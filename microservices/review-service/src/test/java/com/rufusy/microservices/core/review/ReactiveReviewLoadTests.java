@@ -0,0 +1,107 @@
+package com.rufusy.microservices.core.review;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.core.review.persistence.ReactiveReviewRepository;
+import com.rufusy.microservices.core.review.service.ReviewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Verifies that the R2DBC based review service handles far more concurrent requests than the
+ * jdbcScheduler of the JPA implementation accepts, i.e. threadPoolSize + taskQueueSize.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("r2dbc")
+class ReactiveReviewLoadTests extends PostgresTestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveReviewLoadTests.class);
+
+    private static final int CONCURRENT_REQUESTS = 1000;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${app.threadPoolSize:10}")
+    private int threadPoolSize;
+
+    @Value("${app.taskQueueSize:100}")
+    private int taskQueueSize;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReactiveReviewRepository repository;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void concurrentCreatesBeyondThreadPoolCap() {
+        long start = System.nanoTime();
+
+        Long created = Flux.range(1, CONCURRENT_REQUESTS)
+                .flatMap(i -> tracked(reviewService.createReview(new Review(1 + i % 10, i, "a", "s", "c", null))), CONCURRENT_REQUESTS)
+                .count()
+                .block();
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("Created {} reviews in {} ms with a peak of {} concurrent calls", created, millis, peakInFlight.get());
+
+        assertEquals(CONCURRENT_REQUESTS, created);
+        assertTrue(peakInFlight.get() > threadPoolSize + taskQueueSize,
+                "Expected more concurrent calls than the jdbcScheduler accepts, got: " + peakInFlight.get());
+    }
+
+    @Test
+    void concurrentHttpReadsBeyondThreadPoolCap() {
+        Flux.range(1, 10)
+                .flatMap(productId -> reviewService.createReview(new Review(productId, 1, "a", "s", "c", null)))
+                .blockLast();
+
+        WebClient webClient = WebClient.create("http://localhost:" + port);
+        int requests = 5 * (threadPoolSize + taskQueueSize);
+
+        Long responses = Flux.range(1, requests)
+                .flatMap(i -> tracked(webClient.get()
+                        .uri("/review?productId=" + (1 + i % 10))
+                        .retrieve()
+                        .bodyToFlux(Review.class)
+                        .collectList()), requests)
+                .filter(reviews -> reviews.size() == 1)
+                .count()
+                .block();
+
+        LOG.info("Got {} successful responses with a peak of {} concurrent requests", responses, peakInFlight.get());
+
+        assertEquals(requests, responses);
+        assertTrue(peakInFlight.get() > threadPoolSize + taskQueueSize,
+                "Expected more concurrent requests than the jdbcScheduler accepts, got: " + peakInFlight.get());
+    }
+
+    private <T> Mono<T> tracked(Mono<T> call) {
+        return call
+                .doOnSubscribe(s -> peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+}
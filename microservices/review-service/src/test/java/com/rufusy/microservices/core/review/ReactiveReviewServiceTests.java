@@ -0,0 +1,89 @@
+package com.rufusy.microservices.core.review;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.review.persistence.ReactiveReviewRepository;
+import com.rufusy.microservices.core.review.service.ReviewService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("r2dbc")
+class ReactiveReviewServiceTests extends PostgresTestBase {
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ReactiveReviewRepository repository;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @BeforeEach
+    void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    void createAndGetReviews() {
+        StepVerifier.create(reviewService.createReview(review(1, 1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(reviewService.createReview(review(1, 2))).expectNextCount(1).verifyComplete();
+
+        client.get()
+                .uri("/review?productId=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].reviewId").isEqualTo(2);
+    }
+
+    @Test
+    void duplicateError() {
+        StepVerifier.create(reviewService.createReview(review(1, 1))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(reviewService.createReview(review(1, 1)))
+                .expectErrorMatches(ex -> ex instanceof InvalidInputException
+                        && ex.getMessage().equals("Duplicate key, Product Id: 1, Review Id:1"))
+                .verify();
+    }
+
+    @Test
+    void createReviewsReportsDuplicatesPerItem() {
+        StepVerifier.create(reviewService.createReview(review(1, 2))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(reviewService.createReviews(List.of(review(1, 1), review(1, 2), review(1, 3))))
+                .expectNextMatches(failures -> failures.stream().map(BulkWriteFailure::index).toList().equals(List.of(1)))
+                .verifyComplete();
+
+        StepVerifier.create(repository.count()).expectNext(3L).verifyComplete();
+    }
+
+    @Test
+    void deleteReviews() {
+        StepVerifier.create(reviewService.createReview(review(1, 1))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(reviewService.createReview(review(2, 1))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(reviewService.deleteReviews(1)).verifyComplete();
+        StepVerifier.create(reviewService.deleteReviews(1)).verifyComplete();
+
+        StepVerifier.create(repository.count()).expectNext(1L).verifyComplete();
+    }
+
+    private Review review(int productId, int reviewId) {
+        return new Review(productId, reviewId, "a", "s", "c", "SA");
+    }
+}
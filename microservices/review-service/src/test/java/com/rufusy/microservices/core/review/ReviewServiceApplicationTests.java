@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
 import java.util.function.Consumer;
 
@@ -19,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 class ReviewServiceApplicationTests extends PostgresTestBase {
@@ -57,6 +59,58 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
                 .jsonPath("$[2].reviewId").isEqualTo(3);
     }
 
+    @Test
+    void getReviewsPageByProductId() {
+        int productId = 1;
+
+        for (int reviewId = 1; reviewId <= 5; reviewId++) {
+            sendCreateReviewEvent(productId, reviewId);
+        }
+
+        getAndVerifyReviewsByProductId("?productId=" + productId + "&afterId=2&limit=2", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(3)
+                .jsonPath("$[1].reviewId").isEqualTo(4);
+
+        StepVerifier.create(client.get()
+                        .uri("/review?productId=" + productId + "&afterId=4")
+                        .accept(APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isEqualTo(OK)
+                        .returnResult(Review.class)
+                        .getResponseBody())
+                .expectNextMatches(review -> review.getReviewId() == 5)
+                .verifyComplete();
+    }
+
+    @Test
+    void getReviewsInvalidLimit() {
+        getAndVerifyReviewsByProductId("?productId=1&limit=-1", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review")
+                .jsonPath("$.message").isEqualTo("Invalid limit: -1, must be between 0 and 1000");
+
+        getAndVerifyReviewsByProductId("?productId=1&limit=1001", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.message").isEqualTo("Invalid limit: 1001, must be between 0 and 1000");
+    }
+
+    @Test
+    void getReviewsByProductIds() {
+        sendCreateReviewEvent(1, 1);
+        sendCreateReviewEvent(1, 2);
+        sendCreateReviewEvent(2, 1);
+        sendCreateReviewEvent(3, 1);
+
+        StepVerifier.create(client.get()
+                        .uri("/review?productIds=1,2")
+                        .accept(APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isEqualTo(OK)
+                        .returnResult(Review.class)
+                        .getResponseBody())
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
     @Test
     void deleteReviews() {
 
@@ -0,0 +1,96 @@
+package com.rufusy.microservices.core.review.config;
+
+import com.rufusy.microservices.api.core.review.Review;
+import com.rufusy.microservices.api.event.Event;
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import com.rufusy.microservices.core.review.service.ReviewService;
+import com.rufusy.microservices.util.BulkWriteFailure;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkMessageProcessorConfigTests {
+    private final ReviewService reviewService = mock(ReviewService.class);
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final List<Event<Integer, Review>> deadLettered = new CopyOnWriteArrayList<>();
+
+    @Test
+    void retryTakesDuplicatesStoredWithTheEventContentAsInserted() {
+        when(reviewService.createReviews(anyList())).thenReturn(
+                Mono.error(new IllegalStateException("Connection lost")),
+                Mono.just(List.of(duplicate(0), duplicate(1))));
+        // Review 1/1 was inserted by the failed attempt, review 2/2 existed before the run with other content
+        when(reviewService.getReviewsByProductIds(List.of(1, 2))).thenReturn(Flux.just(
+                review(1, 1),
+                new Review(2, 2, "other author", "subject 2", "content 2", null)));
+
+        process(create(1, 1), create(2, 2), create(3, 3));
+
+        verify(reviewService, times(2)).createReviews(anyList());
+        assertEquals(List.of(2), deadLetteredKeys());
+    }
+
+    @Test
+    void duplicatesOfTheFirstAttemptAreSentToTheDlq() {
+        when(reviewService.createReviews(anyList())).thenReturn(Mono.just(List.of(duplicate(0))));
+
+        process(create(1, 1));
+
+        assertEquals(List.of(1), deadLetteredKeys());
+    }
+
+    @Test
+    void invalidItemsAreSentToTheDlqOnRetry() {
+        when(reviewService.createReviews(anyList())).thenReturn(
+                Mono.error(new IllegalStateException("Connection lost")),
+                Mono.just(List.of(new BulkWriteFailure(0, new InvalidInputException("Invalid productId: 0"), false))));
+
+        process(create(0, 1));
+
+        assertEquals(List.of(0), deadLetteredKeys());
+    }
+
+    @SafeVarargs
+    private void process(Event<Integer, Review>... events) {
+        when(streamBridge.send(eq("messageProcessorDlq-out-0"), any())).thenAnswer(invocation -> {
+            Message<Event<Integer, Review>> message = invocation.getArgument(1);
+            deadLettered.add(message.getPayload());
+            return true;
+        });
+
+        BulkMessageProcessorConfig config = new BulkMessageProcessorConfig(reviewService, streamBridge, 10, 10, 3, 1, 1);
+        config.messageProcessor().apply(Flux.just(events)).block(Duration.ofSeconds(5));
+    }
+
+    private List<Integer> deadLetteredKeys() {
+        return deadLettered.stream().map(Event::getKey).toList();
+    }
+
+    private Event<Integer, Review> create(int productId, int reviewId) {
+        return new Event<>(CREATE, productId, review(productId, reviewId));
+    }
+
+    private Review review(int productId, int reviewId) {
+        return new Review(productId, reviewId, "author " + reviewId, "subject " + reviewId, "content " + reviewId, null);
+    }
+
+    private BulkWriteFailure duplicate(int index) {
+        return new BulkWriteFailure(index, new InvalidInputException("Duplicate key"), true);
+    }
+}
@@ -0,0 +1,119 @@
+package com.rufusy.springcloud.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Health of a service, from the status in the response of its /actuator/health endpoint, cached for ttl.
+ * <p>
+ * When the cached health is older than ttl, but not older than ttl + maxStale, it is returned at once and a probe
+ * refreshes it in the background, stale-while-revalidate. Concurrent refreshes share one probe, and a probe
+ * that does not answer within timeout reports the service as DOWN.
+ */
+public class CachedHealthProbe implements ReactiveHealthIndicator {
+    private static final Logger LOG = LoggerFactory.getLogger(CachedHealthProbe.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> BODY_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private record Snapshot(Health health, long probedAtNanos) {
+    }
+
+    private final WebClient webClient;
+    private final String url;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final Duration timeout;
+    private final LongSupplier nanoTime;
+
+    private final AtomicReference<Snapshot> last = new AtomicReference<>();
+    private final AtomicReference<Mono<Health>> pendingProbe = new AtomicReference<>();
+
+    public CachedHealthProbe(WebClient webClient, String serviceUrl, Duration ttl, Duration maxStale, Duration timeout) {
+        this(webClient, serviceUrl, ttl, maxStale, timeout, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock the age of the cached health is measured with, System::nanoTime except in tests
+     */
+    CachedHealthProbe(WebClient webClient, String serviceUrl, Duration ttl, Duration maxStale, Duration timeout, LongSupplier nanoTime) {
+        this.webClient = webClient;
+        this.url = serviceUrl + "/actuator/health";
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+        this.timeout = timeout;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.defer(() -> {
+            Snapshot snapshot = last.get();
+            long age = snapshot == null ? Long.MAX_VALUE : nanoTime.getAsLong() - snapshot.probedAtNanos();
+
+            if (age < ttlNanos) {
+                return Mono.just(snapshot.health());
+            }
+
+            if (age < ttlNanos + maxStaleNanos) {
+                refresh().subscribe();
+                return Mono.just(snapshot.health());
+            }
+
+            return refresh();
+        });
+    }
+
+    private Mono<Health> refresh() {
+        Mono<Health> pending = pendingProbe.get();
+        if (pending != null) {
+            return pending;
+        }
+
+        Mono<Health> probe = probe()
+                .doOnNext(health -> last.set(new Snapshot(health, nanoTime.getAsLong())))
+                .doFinally(signal -> pendingProbe.set(null))
+                .cache();
+
+        return pendingProbe.compareAndSet(null, probe) ? probe : Mono.defer(() -> {
+            Mono<Health> concurrentProbe = pendingProbe.get();
+            return concurrentProbe != null ? concurrentProbe : probe;
+        });
+    }
+
+    private Mono<Health> probe() {
+        LOG.debug("Will call the Health API on URL: {}", url);
+        return webClient.get().uri(url)
+                .exchangeToMono(this::toHealth)
+                .timeout(timeout)
+                .onErrorResume(TimeoutException.class, ex -> Mono.just(Health.down()
+                        .withDetail("error", "No response within " + timeout.toMillis() + " ms").build()))
+                .onErrorResume(ex -> Mono.just(Health.down(ex).build()));
+    }
+
+    /**
+     * A service reports DOWN or OUT_OF_SERVICE with 503 Service Unavailable, the status is taken from the body in both cases.
+     */
+    private Mono<Health> toHealth(ClientResponse response) {
+        int httpStatus = response.statusCode().value();
+        return response.bodyToMono(BODY_TYPE)
+                .map(body -> body.get("status") instanceof String status
+                        ? Health.status(status)
+                        : response.statusCode().is2xxSuccessful() ? Health.unknown() : Health.down())
+                .onErrorResume(ex -> Mono.just(Health.down(ex)))
+                .defaultIfEmpty(response.statusCode().is2xxSuccessful() ? Health.unknown() : Health.down())
+                .map(builder -> builder.withDetail("httpStatus", httpStatus).build());
+    }
+}
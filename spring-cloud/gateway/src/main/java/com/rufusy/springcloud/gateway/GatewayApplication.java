@@ -1,19 +1,24 @@
 package com.rufusy.springcloud.gateway;
 
+import com.rufusy.microservices.util.JwtDecoderConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Hooks;
 
 @SpringBootApplication
+// Only com.rufusy.springcloud.gateway is scanned
+@Import(JwtDecoderConfig.class)
 public class GatewayApplication {
 
     @Bean
     @LoadBalanced
-    public WebClient.Builder loadBalancedWebClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder loadBalancedWebClientBuilder(ClientHttpConnector servicesConnector) {
+        return WebClient.builder().clientConnector(servicesConnector);
     }
 
     public static void main(String[] args) {
@@ -1,49 +1,54 @@
 package com.rufusy.springcloud.gateway;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
-import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.ReactiveHealthContributor;
 import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static java.util.logging.Level.FINE;
-
+/**
+ * The health of the services behind the gateway. The health endpoint subscribes to the indicators together,
+ * so the services are probed concurrently, and each result is cached, see {@link CachedHealthProbe}.
+ */
 @Configuration
 public class HealthCheckConfiguration {
-    private static final Logger LOG = LoggerFactory.getLogger(HealthCheckConfiguration.class);
     private final WebClient webClient;
+    private final Duration ttl;
+    private final Duration maxStale;
+    private final Duration timeout;
+
+    public HealthCheckConfiguration(
+            WebClient.Builder webClientBuilder,
+            @Value("${app.healthCheck.ttlMs:5000}") long ttlMs,
+            @Value("${app.healthCheck.maxStaleMs:30000}") long maxStaleMs,
+            @Value("${app.healthCheck.timeoutMs:2000}") long timeoutMs) {
 
-    public HealthCheckConfiguration(WebClient.Builder webClientBuilder) {
         this.webClient = webClientBuilder.build();
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.maxStale = Duration.ofMillis(maxStaleMs);
+        this.timeout = Duration.ofMillis(timeoutMs);
     }
 
     @Bean
     ReactiveHealthContributor healthCheckMicroservices() {
         final Map<String, ReactiveHealthIndicator> registry = new LinkedHashMap<>();
 
-        registry.put("product", () -> getHealth("http://product"));
-        registry.put("recommendation", () -> getHealth("http://recommendation"));
-        registry.put("review", () -> getHealth("http://review"));
-        registry.put("product-composite", () -> getHealth("http://product-composite"));
-        registry.put("auth-server", () -> getHealth("http://auth-server"));
+        registry.put("product", getHealth("http://product"));
+        registry.put("recommendation", getHealth("http://recommendation"));
+        registry.put("review", getHealth("http://review"));
+        registry.put("product-composite", getHealth("http://product-composite"));
+        registry.put("auth-server", getHealth("http://auth-server"));
 
         return CompositeReactiveHealthContributor.fromMap(registry);
     }
 
-    private Mono<Health> getHealth(String url) {
-        url += "/actuator/health";
-        LOG.debug("Will call the Health API on URL: {}", url);
-        return webClient.get().uri(url).retrieve().bodyToMono(String.class)
-                .map(s -> new Health.Builder().up().build())
-                .onErrorResume(ex -> Mono.just(new Health.Builder().down(ex).build()))
-                .log(LOG.getName(), FINE);
+    private ReactiveHealthIndicator getHealth(String url) {
+        return new CachedHealthProbe(webClient, url, ttl, maxStale, timeout);
     }
 }
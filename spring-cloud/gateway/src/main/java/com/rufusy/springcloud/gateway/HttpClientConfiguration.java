@@ -0,0 +1,36 @@
+package com.rufusy.springcloud.gateway;
+
+import com.rufusy.microservices.util.HttpClientConnectors;
+import com.rufusy.microservices.util.HttpClientProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Connection pool of the load balanced WebClient used by the gateway itself, e.g. for the health checks.
+ * The routes use the gateway's own HttpClient, configured with spring.cloud.gateway.httpclient.*.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfiguration {
+
+    @Bean
+    public HttpClientConnectors.Settings servicesHttpClientSettings(HttpClientProperties properties) {
+        return properties.settings();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider servicesConnectionProvider(HttpClientConnectors.Settings servicesHttpClientSettings) {
+        return HttpClientConnectors.connectionProvider("gateway-services", servicesHttpClientSettings);
+    }
+
+    @Bean
+    public ClientHttpConnector servicesConnector(
+            ConnectionProvider servicesConnectionProvider,
+            HttpClientConnectors.Settings servicesHttpClientSettings) {
+
+        return HttpClientConnectors.connector(servicesConnectionProvider, servicesHttpClientSettings);
+    }
+}
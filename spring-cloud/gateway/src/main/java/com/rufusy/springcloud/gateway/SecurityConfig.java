@@ -7,6 +7,8 @@ import org.springframework.security.config.annotation.web.reactive.EnableWebFlux
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import static org.springframework.http.HttpMethod.DELETE;
+
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConfig {
@@ -18,6 +20,7 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeExchange(exchanges -> exchanges
                         .pathMatchers("/headerrouting/**").permitAll()
+                        .pathMatchers(DELETE, "/actuator/responsecache/**").hasAuthority("SCOPE_product:write")
                         .pathMatchers("/actuator/**").permitAll()
                         .pathMatchers("/eureka/**").permitAll()
                         .pathMatchers("/oauth2/**").permitAll()
@@ -0,0 +1,137 @@
+package com.rufusy.springcloud.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Size-bounded in-memory store of the responses cached by the ScopedResponseCache gateway filter.
+ * <p>
+ * The size is bounded by the bytes of the cached bodies and headers, each entry lives as long as the max-age
+ * of its response, or app.responseCache.defaultTtlSeconds if the response has none.
+ */
+@Component
+public class ResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    public record Key(String path, String query, String accept, String scopes, Integer productId) {
+    }
+
+    public record CachedResponse(byte[] body, HttpHeaders headers, String etag, Instant storedAt, Duration ttl) {
+        int weight() {
+            return body.length + headers.toString().length() + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    private final Cache<Key, CachedResponse> cache;
+    private final int maxEntryBytes;
+
+    public ResponseCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.responseCache.maxBytes:67108864}") long maxBytes,
+            @Value("${app.responseCache.maxEntryBytes:1048576}") int maxEntryBytes) {
+
+        this.maxEntryBytes = maxEntryBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, CachedResponse>weigher((key, response) -> response.weight())
+                .expireAfter(new Expiry<Key, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(Key key, CachedResponse response, long currentTime) {
+                        return response.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, CachedResponse response, long currentTime, long currentDuration) {
+                        return response.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, CachedResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gatewayResponseCache");
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", "gatewayResponseCache")
+                .description("The ratio of cache requests that were hits")
+                .register(meterRegistry);
+        Gauge.builder("cache.size.bytes", this, ResponseCache::weightedSize)
+                .tag("cache", "gatewayResponseCache")
+                .description("The bytes of the cached bodies and headers")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        LOG.info("Creates a gatewayResponseCache, maxBytes = {}, maxEntryBytes = {}", maxBytes, maxEntryBytes);
+    }
+
+    public CachedResponse get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public boolean put(Key key, CachedResponse response) {
+        if (response.body().length > maxEntryBytes || response.ttl().isZero()) {
+            return false;
+        }
+
+        cache.put(key, response);
+        return true;
+    }
+
+    /**
+     * Removes the responses of a product for all scopes.
+     *
+     * @return the number of removed responses
+     */
+    public int purge(int productId) {
+        AtomicInteger purged = new AtomicInteger();
+        cache.asMap().keySet().removeIf(key -> {
+            boolean matches = key.productId() != null && key.productId() == productId;
+            if (matches) {
+                purged.incrementAndGet();
+            }
+            return matches;
+        });
+
+        LOG.debug("Purged {} cached responses for productId: {}", purged, productId);
+        return purged.get();
+    }
+
+    public void purgeAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", cache.estimatedSize());
+        stats.put("bytes", weightedSize());
+        stats.put("hitRatio", cache.stats().hitRate());
+        stats.put("hits", cache.stats().hitCount());
+        stats.put("misses", cache.stats().missCount());
+        stats.put("evictions", cache.stats().evictionCount());
+        return stats;
+    }
+
+    private long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+}
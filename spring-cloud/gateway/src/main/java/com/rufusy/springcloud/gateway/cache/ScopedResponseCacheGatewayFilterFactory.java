@@ -0,0 +1,244 @@
+package com.rufusy.springcloud.gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the successful GET responses of a route in the {@link ResponseCache}, used as "ScopedResponseCache" in the route filters.
+ * <p>
+ * A response is cached per path, query, Accept header and the scopes of the caller's token, so callers with
+ * different scopes never share a response. Responses marked no-store or private, or that set cookies, are not cached.
+ * A request with Cache-Control no-cache skips the lookup, a request with no-store bypasses the cache entirely.
+ * Cached responses carry an ETag, a matching If-None-Match is answered with 304 Not Modified.
+ * A successful DELETE of a product purges all cached responses of the product, and purges them again after purgeDelay.
+ * <p>
+ * The DELETE only publishes the delete events, the core services delete the product asynchronously, so a read in between
+ * may cache the old product again, the second purge bounds that to purgeDelay. The cache is local to each gateway replica,
+ * the other replicas serve their cached responses of a deleted product until the responses expire, at most their ttl.
+ */
+@Component
+public class ScopedResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(ScopedResponseCacheGatewayFilterFactory.class);
+
+    static final String X_CACHE = "X-Cache";
+
+    private static final Pattern PRODUCT_ID_PATH = Pattern.compile("^/product-composite/(\\d+)(/.*)?$");
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(?:s-maxage|max-age)\\s*=\\s*(\\d+)");
+    private static final List<String> NOT_STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, HttpHeaders.SET_COOKIE,
+            HttpHeaders.DATE, HttpHeaders.AGE, X_CACHE);
+
+    private final ResponseCache responseCache;
+    private final Duration defaultTtl;
+    private final Duration purgeDelay;
+
+    public ScopedResponseCacheGatewayFilterFactory(
+            ResponseCache responseCache,
+            @Value("${app.responseCache.defaultTtlSeconds:10}") int defaultTtlSeconds,
+            @Value("${app.responseCache.purgeDelayMs:1000}") int purgeDelayMs) {
+
+        super(Object.class);
+        this.responseCache = responseCache;
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.purgeDelay = Duration.ofMillis(purgeDelayMs);
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        // Runs before the NettyWriteResponseFilter, so that the decorated response is the one it writes the body to
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+
+            if (HttpMethod.DELETE.equals(request.getMethod())) {
+                return chain.filter(exchange).then(Mono.fromRunnable(() -> purgeAfterDelete(exchange)));
+            }
+
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (!HttpMethod.GET.equals(request.getMethod()) || hasDirective(requestCacheControl, "no-store")) {
+                return chain.filter(exchange);
+            }
+
+            return scopes(exchange).flatMap(scopes -> {
+                ResponseCache.Key key = createKey(request, scopes);
+
+                ResponseCache.CachedResponse cached = hasDirective(requestCacheControl, "no-cache") ? null : responseCache.get(key);
+                if (cached != null) {
+                    return writeCachedResponse(exchange, cached);
+                }
+
+                ServerHttpResponse cachingResponse = new CachingResponseDecorator(exchange.getResponse(), key);
+                return chain.filter(exchange.mutate().response(cachingResponse).build());
+            });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<String> scopes(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .filter(Authentication.class::isInstance)
+                .map(principal -> ((Authentication) principal).getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .filter(authority -> authority.startsWith("SCOPE_"))
+                        .sorted()
+                        .collect(Collectors.joining(" ")))
+                .defaultIfEmpty("");
+    }
+
+    private ResponseCache.Key createKey(ServerHttpRequest request, String scopes) {
+        String path = request.getPath().value();
+        return new ResponseCache.Key(
+                path,
+                request.getURI().getRawQuery(),
+                request.getHeaders().getFirst(HttpHeaders.ACCEPT),
+                scopes,
+                productId(path));
+    }
+
+    private Mono<Void> writeCachedResponse(ServerWebExchange exchange, ResponseCache.CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(cached.etag());
+        headers.set(X_CACHE, "HIT");
+        headers.set(HttpHeaders.AGE, String.valueOf(Duration.between(cached.storedAt(), Instant.now()).toSeconds()));
+
+        if (matchesEtag(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        cached.headers().forEach((name, values) -> {
+            if (!headers.containsKey(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.setContentLength(cached.body().length);
+        response.setStatusCode(HttpStatus.OK);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void purgeAfterDelete(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        Integer productId = productId(exchange.getRequest().getPath().value());
+        if (productId != null && status != null && status.is2xxSuccessful()) {
+            responseCache.purge(productId);
+            Mono.delay(purgeDelay).subscribe(tick -> responseCache.purge(productId));
+        }
+    }
+
+    private class CachingResponseDecorator extends ServerHttpResponseDecorator {
+        private final ResponseCache.Key key;
+
+        CachingResponseDecorator(ServerHttpResponse delegate, ResponseCache.Key key) {
+            super(delegate);
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Duration ttl = cacheableFor();
+            if (ttl == null) {
+                getHeaders().set(X_CACHE, "BYPASS");
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                HttpHeaders headers = getHeaders();
+                if (headers.getETag() == null) {
+                    headers.setETag("W/\"" + DigestUtils.md5DigestAsHex(bytes) + "\"");
+                }
+
+                HttpHeaders stored = new HttpHeaders();
+                headers.forEach((name, values) -> {
+                    if (NOT_STORED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                        stored.put(name, List.copyOf(values));
+                    }
+                });
+
+                boolean cached = responseCache.put(key, new ResponseCache.CachedResponse(bytes, stored, headers.getETag(), Instant.now(), ttl));
+                LOG.debug("Response for {} cached: {}", key, cached);
+                headers.set(X_CACHE, "MISS");
+
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        /**
+         * Returns how long the response may be cached, or null if it may not be cached at all.
+         */
+        private Duration cacheableFor() {
+            HttpHeaders headers = getHeaders();
+            MediaType contentType = headers.getContentType();
+            if (!HttpStatus.OK.equals(getStatusCode())
+                    || contentType == null
+                    || !contentType.isCompatibleWith(MediaType.APPLICATION_JSON)
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return null;
+            }
+
+            String cacheControl = headers.getCacheControl();
+            if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")) {
+                return null;
+            }
+
+            Matcher maxAge = cacheControl == null ? null : MAX_AGE.matcher(cacheControl);
+            return maxAge != null && maxAge.find() ? Duration.ofSeconds(Long.parseLong(maxAge.group(1))) : defaultTtl;
+        }
+    }
+
+    static Integer productId(String path) {
+        Matcher matcher = PRODUCT_ID_PATH.matcher(path);
+        return matcher.matches() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String part : cacheControl.split(",")) {
+            if (part.trim().toLowerCase().startsWith(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean matchesEtag(List<String> ifNoneMatch, String etag) {
+        String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return ifNoneMatch.stream()
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(opaqueTag));
+    }
+}
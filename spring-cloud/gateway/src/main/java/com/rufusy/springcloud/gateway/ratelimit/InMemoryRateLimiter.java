@@ -0,0 +1,192 @@
+package com.rufusy.springcloud.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * A RateLimiter for the RequestRateLimiter filter that keeps its token buckets in memory, instead of in Redis.
+ * <p>
+ * Each route and key gets a token bucket, configured per route with the in-memory-rate-limiter.* args of the filter,
+ * named as the redis-rate-limiter.* args. A bucket is a single AtomicLong, the time when it will be full again,
+ * that is updated with compare-and-set (the generic cell rate algorithm), so buckets are lock-free.
+ * <p>
+ * With several gateway replicas, each replica enforces its share of the replenish rate, the rate divided by
+ * the number of replicas. Denied requests get a Retry-After header with the seconds until the tokens are available.
+ */
+public class InMemoryRateLimiter extends AbstractRateLimiter<InMemoryRateLimiter.Config> {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryRateLimiter.class);
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "in-memory-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private final Cache<String, TokenBucket> buckets;
+    private final IntSupplier replicas;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private Config defaultConfig;
+
+    public InMemoryRateLimiter(
+            ConfigurationService configurationService,
+            IntSupplier replicas,
+            MeterRegistry meterRegistry,
+            long maxBuckets,
+            Duration bucketIdleTimeout) {
+
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.replicas = replicas;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(bucketIdleTimeout)
+                .build();
+    }
+
+    /**
+     * The config of routes without in-memory-rate-limiter args.
+     */
+    public InMemoryRateLimiter withDefaultConfig(Config defaultConfig) {
+        this.defaultConfig = defaultConfig;
+        return this;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId + " or defaultFilters");
+        }
+
+        int replicaCount = Math.max(1, replicas.getAsInt());
+        // Each replica replenishes its share of the rate, one token every interval
+        long intervalNanos = replicaCount * NANOS_PER_SECOND / config.getReplenishRate();
+        long burstNanos = Math.max(config.getBurstCapacity() * NANOS_PER_SECOND / config.getReplenishRate(),
+                intervalNanos * config.getRequestedTokens());
+
+        TokenBucket bucket = buckets.get(routeId + ":" + id, key -> new TokenBucket());
+        long waitNanos = bucket.tryAcquire(System.nanoTime() - ORIGIN_NANOS, intervalNanos * config.getRequestedTokens(), burstNanos);
+        boolean allowed = waitNanos == 0;
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(bucket.remaining(System.nanoTime() - ORIGIN_NANOS, intervalNanos, burstNanos)));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, String.valueOf(config.getRequestedTokens()));
+        if (!allowed) {
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf((waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+            LOG.debug("Rate limited request for key: {} on route: {}, retry after {} ms", id, routeId, waitNanos / 1_000_000);
+        }
+
+        counter(routeId, allowed ? "allowed" : "denied").increment();
+
+        return Mono.just(new Response(allowed, headers));
+    }
+
+    private Counter counter(String routeId, String outcome) {
+        return counters.computeIfAbsent(routeId + ":" + outcome, key -> Counter.builder("gateway.ratelimiter.requests")
+                .description("Requests checked by the in-memory rate limiter")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    /**
+     * A token bucket kept as the time, relative to ORIGIN_NANOS, when it will be full again.
+     */
+    static final class TokenBucket {
+        private final AtomicLong fullAtNanos = new AtomicLong();
+
+        /**
+         * Takes the tokens worth costNanos if the bucket has them.
+         *
+         * @return 0 if the tokens were taken, otherwise the nanos until the bucket has them
+         */
+        long tryAcquire(long nowNanos, long costNanos, long burstNanos) {
+            while (true) {
+                long fullAt = fullAtNanos.get();
+                long newFullAt = Math.max(fullAt, nowNanos) + costNanos;
+                long backlog = newFullAt - nowNanos;
+                if (backlog > burstNanos) {
+                    return backlog - burstNanos;
+                }
+                if (fullAtNanos.compareAndSet(fullAt, newFullAt)) {
+                    return 0;
+                }
+            }
+        }
+
+        long remaining(long nowNanos, long intervalNanos, long burstNanos) {
+            long backlog = Math.max(fullAtNanos.get(), nowNanos) - nowNanos;
+            return Math.max(0, (burstNanos - backlog) / intervalNanos);
+        }
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate;
+
+        @Min(1)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity + ", requestedTokens=" + requestedTokens + '}';
+        }
+    }
+}
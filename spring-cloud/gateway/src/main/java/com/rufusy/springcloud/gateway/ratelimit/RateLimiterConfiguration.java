@@ -0,0 +1,56 @@
+package com.rufusy.springcloud.gateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.IntSupplier;
+
+/**
+ * Beans for the RequestRateLimiter filter, used by the routes in gateway.yml with
+ * key-resolver: "#{@clientKeyResolver}" and rate-limiter: "#{@inMemoryRateLimiter}".
+ */
+@Configuration
+public class RateLimiterConfiguration {
+
+    @Bean
+    public InMemoryRateLimiter inMemoryRateLimiter(
+            ConfigurationService configurationService,
+            DiscoveryClient discoveryClient,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.name}") String applicationName,
+            @Value("${app.rateLimiter.shareAcrossReplicas:false}") boolean shareAcrossReplicas,
+            @Value("${app.rateLimiter.maxBuckets:100000}") long maxBuckets,
+            @Value("${app.rateLimiter.bucketIdleTimeoutSeconds:600}") int bucketIdleTimeoutSeconds,
+            @Value("${app.rateLimiter.defaultReplenishRate:100}") int defaultReplenishRate,
+            @Value("${app.rateLimiter.defaultBurstCapacity:200}") int defaultBurstCapacity) {
+
+        IntSupplier replicas = shareAcrossReplicas ? new ReplicaCount(discoveryClient, applicationName, Duration.ofSeconds(30)) : () -> 1;
+
+        return new InMemoryRateLimiter(configurationService, replicas, meterRegistry, maxBuckets, Duration.ofSeconds(bucketIdleTimeoutSeconds))
+                .withDefaultConfig(new InMemoryRateLimiter.Config()
+                        .setReplenishRate(defaultReplenishRate)
+                        .setBurstCapacity(defaultBurstCapacity));
+    }
+
+    /**
+     * Limits each OAuth client, by the client_id claim of its access token, or the subject if the token has none.
+     */
+    @Bean
+    public KeyResolver clientKeyResolver() {
+        return exchange -> exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .flatMap(principal -> {
+                    JwtAuthenticationToken token = (JwtAuthenticationToken) principal;
+                    String clientId = token.getToken().getClaimAsString("client_id");
+                    return Mono.justOrEmpty(clientId != null ? clientId : token.getToken().getSubject());
+                });
+    }
+}
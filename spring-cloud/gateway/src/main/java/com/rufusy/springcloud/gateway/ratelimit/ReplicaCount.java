@@ -0,0 +1,44 @@
+package com.rufusy.springcloud.gateway.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.time.Duration;
+import java.util.function.IntSupplier;
+
+/**
+ * The number of gateway replicas registered in the discovery service, looked up at most once per refreshInterval.
+ * Used to split the rate limits between the replicas, without sharing the token buckets.
+ */
+class ReplicaCount implements IntSupplier {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaCount.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final String serviceId;
+    private final long refreshIntervalNanos;
+
+    private volatile int replicas = 1;
+    private volatile long refreshedAtNanos = System.nanoTime() - Duration.ofDays(1).toNanos();
+
+    ReplicaCount(DiscoveryClient discoveryClient, String serviceId, Duration refreshInterval) {
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public int getAsInt() {
+        long now = System.nanoTime();
+        if (now - refreshedAtNanos > refreshIntervalNanos) {
+            refreshedAtNanos = now;
+            // The discovery client answers from its local copy of the registry
+            int registered = Math.max(1, discoveryClient.getInstances(serviceId).size());
+            if (registered != replicas) {
+                LOG.info("Splits the rate limits between {} replicas of {}", registered, serviceId);
+                replicas = registered;
+            }
+        }
+        return replicas;
+    }
+}
@@ -0,0 +1,98 @@
+package com.rufusy.springcloud.gateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachedHealthProbeTests {
+    private final AtomicInteger probes = new AtomicInteger();
+    private final AtomicReference<String> status = new AtomicReference<>("UP");
+    private final AtomicReference<Duration> latency = new AtomicReference<>(Duration.ZERO);
+    private final AtomicLong clock = new AtomicLong();
+
+    private DisposableServer service;
+
+    @BeforeEach
+    void setUp() {
+        service = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/actuator/health", (request, response) -> {
+                    probes.incrementAndGet();
+                    return response
+                            .status("UP".equals(status.get()) ? 200 : 503)
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"status\":\"" + status.get() + "\"}").delayElement(latency.get()));
+                }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.disposeNow();
+    }
+
+    @Test
+    void statusIsTakenFromTheResponseBody() {
+        status.set("OUT_OF_SERVICE");
+
+        Health health = createProbe(Duration.ZERO, Duration.ZERO).health().block();
+
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(503, health.getDetails().get("httpStatus"));
+    }
+
+    @Test
+    void healthIsCachedForTheTtl() {
+        CachedHealthProbe probe = createProbe(Duration.ofMinutes(1), Duration.ZERO);
+
+        probe.health().block();
+        status.set("DOWN");
+
+        assertEquals(Status.UP, probe.health().block().getStatus());
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    void staleHealthIsReturnedWhileItIsRefreshed() {
+        CachedHealthProbe probe = createProbe(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        probe.health().block();
+
+        status.set("DOWN");
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+
+        // The stale health, the refresh runs in the background
+        assertEquals(Status.UP, probe.health().block().getStatus());
+
+        // Older than ttl + maxStale, joins the refresh that is still in progress or probes again
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(Status.DOWN, probe.health().block(Duration.ofSeconds(5)).getStatus());
+        assertTrue(probes.get() >= 2);
+    }
+
+    @Test
+    void slowServiceIsDown() {
+        latency.set(Duration.ofSeconds(2));
+
+        Health health = createProbe(Duration.ZERO, Duration.ZERO).health().block(Duration.ofSeconds(5));
+
+        assertEquals(Status.DOWN, health.getStatus());
+    }
+
+    private CachedHealthProbe createProbe(Duration ttl, Duration maxStale) {
+        return new CachedHealthProbe(WebClient.create(), "http://localhost:" + service.port(), ttl, maxStale, Duration.ofMillis(200), clock::get);
+    }
+}
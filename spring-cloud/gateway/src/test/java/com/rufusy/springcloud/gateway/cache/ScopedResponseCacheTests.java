@@ -0,0 +1,155 @@
+package com.rufusy.springcloud.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopedResponseCacheTests {
+    private static final String BODY = "{\"productId\":1}";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private String upstreamCacheControl;
+
+    private ResponseCache responseCache;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(new SimpleMeterRegistry(), 10000, 1000);
+        filter = new ScopedResponseCacheGatewayFilterFactory(responseCache, 10, 50).apply(new Object());
+    }
+
+    @Test
+    void secondReadIsServedFromTheCache() {
+        ServerWebExchange miss = get("/product-composite/1", "SCOPE_product:read");
+        ServerWebExchange hit = get("/product-composite/1", "SCOPE_product:read");
+
+        assertEquals("MISS", miss.getResponse().getHeaders().getFirst(ScopedResponseCacheGatewayFilterFactory.X_CACHE));
+        assertEquals("HIT", hit.getResponse().getHeaders().getFirst(ScopedResponseCacheGatewayFilterFactory.X_CACHE));
+        assertEquals(BODY, ((MockServerWebExchange) hit).getResponse().getBodyAsString().block());
+        assertEquals(miss.getResponse().getHeaders().getETag(), hit.getResponse().getHeaders().getETag());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void scopesDoNotShareResponses() {
+        get("/product-composite/1", "SCOPE_product:read");
+        get("/product-composite/1", "SCOPE_product:read", "SCOPE_product:write");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void matchingEtagIsNotModified() {
+        String etag = get("/product-composite/1", "SCOPE_product:read").getResponse().getHeaders().getETag();
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/product-composite/1").ifNoneMatch(etag));
+        filter(exchange, "SCOPE_product:read");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, exchange.getResponse().getStatusCode());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void noStoreResponsesAreNotCached() {
+        upstreamCacheControl = "no-store";
+        get("/product-composite/1", "SCOPE_product:read");
+        get("/product-composite/1", "SCOPE_product:read");
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(0L, responseCache.stats().get("entries"));
+    }
+
+    @Test
+    void purgeRemovesAllResponsesOfTheProduct() {
+        get("/product-composite/1", "SCOPE_product:read");
+        get("/product-composite/1?delay=0", "SCOPE_product:read");
+        get("/product-composite/2", "SCOPE_product:read");
+
+        assertEquals(2, responseCache.purge(1));
+        assertEquals(1L, responseCache.stats().get("entries"));
+    }
+
+    @Test
+    void deletePurgesAgainAfterThePurgeDelay() throws InterruptedException {
+        get("/product-composite/1", "SCOPE_product:read");
+        filter(MockServerWebExchange.from(MockServerHttpRequest.delete("/product-composite/1")), "SCOPE_product:write");
+        assertEquals(0L, responseCache.stats().get("entries"));
+
+        // A read before the core services have deleted the product caches it again
+        get("/product-composite/1", "SCOPE_product:read");
+        assertEquals(1L, responseCache.stats().get("entries"));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while ((long) responseCache.stats().get("entries") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0L, responseCache.stats().get("entries"));
+    }
+
+    @Test
+    void entriesAboveMaxEntryBytesAreNotCached() {
+        ResponseCache.Key key = new ResponseCache.Key("/product-composite/1", null, null, "", 1);
+
+        assertFalse(responseCache.put(key, cachedResponse(new byte[1001])));
+        assertTrue(responseCache.put(key, cachedResponse(new byte[1000])));
+        assertNotNull(responseCache.get(key));
+        assertTrue((long) responseCache.stats().get("bytes") > 1000);
+    }
+
+    @Test
+    void productIdIsParsedFromThePath() {
+        assertEquals(Integer.valueOf(1), ScopedResponseCacheGatewayFilterFactory.productId("/product-composite/1"));
+        assertNull(ScopedResponseCacheGatewayFilterFactory.productId("/product-composite"));
+    }
+
+    private ServerWebExchange get(String uri, String... scopes) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+        filter(exchange, scopes);
+        return exchange;
+    }
+
+    private void filter(MockServerWebExchange exchange, String... scopes) {
+        GatewayFilterChain upstream = upstreamExchange -> {
+            upstreamCalls.incrementAndGet();
+            var response = upstreamExchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (upstreamCacheControl != null) {
+                response.getHeaders().setCacheControl(upstreamCacheControl);
+            }
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        };
+
+        ServerWebExchange authenticated = exchange.mutate()
+                .principal(Mono.just(new TestingAuthenticationToken("user", null, scopes)))
+                .build();
+        filter.filter(authenticated, upstream).block(Duration.ofSeconds(5));
+    }
+
+    private ResponseCache.CachedResponse cachedResponse(byte[] body) {
+        return new ResponseCache.CachedResponse(body, new HttpHeaders(), "\"1\"", Instant.now(), Duration.ofSeconds(10));
+    }
+}
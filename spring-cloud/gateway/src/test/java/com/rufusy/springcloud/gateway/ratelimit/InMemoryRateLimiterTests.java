@@ -0,0 +1,82 @@
+package com.rufusy.springcloud.gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRateLimiterTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void requestsBeyondTheBurstAreDeniedWithRetryAfter() {
+        InMemoryRateLimiter rateLimiter = createRateLimiter(1, 1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(isAllowed(rateLimiter, "reader").isAllowed());
+        }
+
+        RateLimiter.Response denied = isAllowed(rateLimiter, "reader");
+        assertFalse(denied.isAllowed());
+        assertEquals("1", denied.getHeaders().get(HttpHeaders.RETRY_AFTER));
+        assertEquals("0", denied.getHeaders().get(InMemoryRateLimiter.REMAINING_HEADER));
+        assertEquals(1.0, meterRegistry.get("gateway.ratelimiter.requests").tag("outcome", "denied").counter().count());
+    }
+
+    @Test
+    void clientsHaveTheirOwnBuckets() {
+        InMemoryRateLimiter rateLimiter = createRateLimiter(1, 1, 1);
+
+        assertTrue(isAllowed(rateLimiter, "reader").isAllowed());
+        assertFalse(isAllowed(rateLimiter, "reader").isAllowed());
+        assertTrue(isAllowed(rateLimiter, "writer").isAllowed());
+    }
+
+    @Test
+    void concurrentRequestsGetNoMoreThanTheBurst() {
+        InMemoryRateLimiter rateLimiter = createRateLimiter(1, 1, 50);
+
+        long allowed = Flux.range(0, 500)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .map(i -> isAllowed(rateLimiter, "reader").isAllowed())
+                .sequential()
+                .filter(Boolean::booleanValue)
+                .count()
+                .block(Duration.ofSeconds(10));
+
+        // One more token may be replenished while the requests run
+        assertTrue(allowed == 50 || allowed == 51, "Expected the burst of 50 requests to be allowed, got: " + allowed);
+    }
+
+    @Test
+    void replicasShareTheRate() {
+        // Two replicas, each gets half of the burst of four
+        InMemoryRateLimiter rateLimiter = createRateLimiter(2, 2, 4);
+
+        assertTrue(isAllowed(rateLimiter, "reader").isAllowed());
+        RateLimiter.Response second = isAllowed(rateLimiter, "reader");
+        assertTrue(second.isAllowed());
+        assertEquals("0", second.getHeaders().get(InMemoryRateLimiter.REMAINING_HEADER));
+        assertFalse(isAllowed(rateLimiter, "reader").isAllowed());
+    }
+
+    private RateLimiter.Response isAllowed(InMemoryRateLimiter rateLimiter, String clientId) {
+        return rateLimiter.isAllowed("product-composite", clientId).block();
+    }
+
+    private InMemoryRateLimiter createRateLimiter(int replicas, int replenishRate, int burstCapacity) {
+        return new InMemoryRateLimiter(null, () -> replicas, meterRegistry, 1000, Duration.ofMinutes(1))
+                .withDefaultConfig(new InMemoryRateLimiter.Config()
+                        .setReplenishRate(replenishRate)
+                        .setBurstCapacity(burstCapacity));
+    }
+}
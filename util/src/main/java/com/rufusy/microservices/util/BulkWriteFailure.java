@@ -0,0 +1,8 @@
+package com.rufusy.microservices.util;
+
+/**
+ * A single item of a bulk write that failed, index refers to the position of the item in the written list.
+ * duplicateKey tells if the item failed because an entity with the same key already exists.
+ */
+public record BulkWriteFailure(int index, RuntimeException error, boolean duplicateKey) {
+}
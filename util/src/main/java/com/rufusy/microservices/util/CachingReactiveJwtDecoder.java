@@ -0,0 +1,120 @@
+package com.rufusy.microservices.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Decodes JWTs with the keys of a {@link JwkSetCache} and caches the decoded tokens, so that repeated requests
+ * with the same bearer token skip the signature verification.
+ * <p>
+ * The cache is keyed by the SHA-256 hash of the token and each entry expires when the token expires.
+ * The time spent verifying tokens is published as the jwt.verify timer, tagged with the outcome.
+ */
+@Slf4j
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Clock clock;
+    private final Timer validTimer;
+    private final Timer invalidTimer;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry, long maxSize, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String hash, Jwt jwt, long currentTime) {
+                        return Math.max(0, Duration.between(clock.instant(), jwt.getExpiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtCache");
+        this.validTimer = verifyTimer(meterRegistry, "valid");
+        this.invalidTimer = verifyTimer(meterRegistry, "invalid");
+    }
+
+    /**
+     * Creates a decoder that verifies RS256 signatures with the keys of the jwkSetCache and validates
+     * the timestamps and issuer of the tokens, the same validation as the decoder Spring Boot creates from an issuer-uri.
+     */
+    public static CachingReactiveJwtDecoder create(String issuerUri, JwkSetCache jwkSetCache, MeterRegistry meterRegistry, long maxSize) {
+        NimbusReactiveJwtDecoder nimbusDecoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::keys)
+                .jwsAlgorithm(SignatureAlgorithm.RS256)
+                .build();
+        nimbusDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+
+        log.info("Creates a JWT decoder for issuer: {}, with a cache of max {} tokens", issuerUri, maxSize);
+        return new CachingReactiveJwtDecoder(nimbusDecoder, meterRegistry, maxSize, Clock.systemUTC());
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        String hash = hash(token);
+
+        Jwt cached = cache.getIfPresent(hash);
+        if (cached != null && cached.getExpiresAt().isAfter(clock.instant())) {
+            return Mono.just(cached);
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return delegate.decode(token)
+                    .doOnNext(jwt -> {
+                        validTimer.record(Duration.ofNanos(System.nanoTime() - start));
+                        Instant expiresAt = jwt.getExpiresAt();
+                        if (expiresAt != null && expiresAt.isAfter(clock.instant())) {
+                            cache.put(hash, jwt);
+                        }
+                    })
+                    .doOnError(ex -> invalidTimer.record(Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.verify")
+                .description("Time to verify the signature and claims of a JWT that is not in the cache")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
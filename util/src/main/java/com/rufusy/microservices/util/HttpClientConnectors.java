@@ -0,0 +1,75 @@
+package com.rufusy.microservices.util;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.Http2AllocationStrategy;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Creates the Reactor Netty connection pools and connectors used by the WebClients that call other services.
+ * <p>
+ * Reactor Netty keeps one pool per remote address, so maxConnections and pendingAcquireMaxCount are limits per instance.
+ * Requests beyond pendingAcquireMaxCount, or that wait longer than pendingAcquireTimeout for a connection, fail fast
+ * instead of queueing without bound. The pool gauges are published as reactor.netty.connection.provider.* metrics.
+ */
+@Slf4j
+public final class HttpClientConnectors {
+
+    public record Settings(
+            int maxConnections,
+            int pendingAcquireMaxCount,
+            Duration pendingAcquireTimeout,
+            Duration maxIdleTime,
+            Duration maxLifeTime,
+            Duration evictionInterval,
+            Duration connectTimeout,
+            Duration responseTimeout,
+            boolean h2c,
+            int maxConcurrentStreams) {
+    }
+
+    private HttpClientConnectors() {
+    }
+
+    public static ConnectionProvider connectionProvider(String name, Settings settings) {
+        log.info("Creates a connection pool: {} with {}", name, settings);
+
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                .maxConnections(settings.maxConnections())
+                .pendingAcquireMaxCount(settings.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.pendingAcquireTimeout())
+                .maxIdleTime(settings.maxIdleTime())
+                .maxLifeTime(settings.maxLifeTime())
+                .evictInBackground(settings.evictionInterval())
+                .metrics(true);
+
+        if (settings.h2c()) {
+            // With HTTP/2 each connection multiplexes up to maxConcurrentStreams requests
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(settings.maxConnections())
+                    .maxConcurrentStreams(settings.maxConcurrentStreams())
+                    .build());
+        }
+
+        return builder.build();
+    }
+
+    public static ClientHttpConnector connector(ConnectionProvider connectionProvider, Settings settings) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.connectTimeout().toMillis())
+                .responseTimeout(settings.responseTimeout());
+
+        if (settings.h2c()) {
+            // Prior knowledge is not assumed, servers that only speak HTTP/1.1 keep working through the upgrade negotiation
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
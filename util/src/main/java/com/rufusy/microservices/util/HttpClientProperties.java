@@ -0,0 +1,38 @@
+package com.rufusy.microservices.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the connection pool created with {@link HttpClientConnectors}, bound from app.httpClient.*.
+ * Registered with @EnableConfigurationProperties by the configuration that creates the pool.
+ */
+@ConfigurationProperties("app.http-client")
+public record HttpClientProperties(
+        @DefaultValue("100") int maxConnections,
+        @DefaultValue("500") int pendingAcquireMaxCount,
+        @DefaultValue("2000") long pendingAcquireTimeoutMs,
+        @DefaultValue("30000") long maxIdleTimeMs,
+        @DefaultValue("300000") long maxLifeTimeMs,
+        @DefaultValue("30000") long evictionIntervalMs,
+        @DefaultValue("2000") long connectTimeoutMs,
+        @DefaultValue("5000") long responseTimeoutMs,
+        @DefaultValue("false") boolean h2c,
+        @DefaultValue("100") int maxConcurrentStreams) {
+
+    public HttpClientConnectors.Settings settings() {
+        return new HttpClientConnectors.Settings(
+                maxConnections,
+                pendingAcquireMaxCount,
+                Duration.ofMillis(pendingAcquireTimeoutMs),
+                Duration.ofMillis(maxIdleTimeMs),
+                Duration.ofMillis(maxLifeTimeMs),
+                Duration.ofMillis(evictionIntervalMs),
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(responseTimeoutMs),
+                h2c,
+                maxConcurrentStreams);
+    }
+}
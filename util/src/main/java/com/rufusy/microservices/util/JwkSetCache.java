@@ -0,0 +1,131 @@
+package com.rufusy.microservices.util;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the JWK set of the authorization server in memory and refreshes it in the background,
+ * so that verifying a JWT never waits for the authorization server.
+ * <p>
+ * A token signed with a key that is not in the set, e.g. after a key rotation, triggers an immediate refresh,
+ * at most once per minRefreshInterval. Concurrent lookups share the same fetch, and a failed fetch keeps the last known set.
+ */
+@Slf4j
+public class JwkSetCache {
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration fetchTimeout;
+
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+    private final AtomicReference<Mono<JWKSet>> pendingFetch = new AtomicReference<>();
+    private final AtomicLong lastFetchNanos = new AtomicLong(System.nanoTime() - Duration.ofDays(1).toNanos());
+
+    private Disposable scheduledRefresh;
+
+    public JwkSetCache(WebClient webClient, String jwkSetUri, Duration refreshInterval, Duration minRefreshInterval, Duration fetchTimeout) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.fetchTimeout = fetchTimeout;
+    }
+
+    /**
+     * Fetches the JWK set now and then every refreshInterval.
+     */
+    public void start() {
+        log.info("Will refresh the JWK set from {} every {}", jwkSetUri, refreshInterval);
+        scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval, Schedulers.parallel())
+                .concatMap(tick -> fetch().onErrorResume(ex -> Mono.empty()))
+                .subscribe();
+    }
+
+    public void stop() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.dispose();
+        }
+    }
+
+    /**
+     * The JWK source of a NimbusReactiveJwtDecoder, returns the keys matching the header of the token.
+     */
+    public Flux<JWK> keys(SignedJWT jwt) {
+        JWKMatcher matcher = JWKMatcher.forJWSHeader(jwt.getHeader());
+        if (matcher == null) {
+            // Not a signature algorithm with keys in a JWK set
+            return Flux.empty();
+        }
+
+        JWKSelector selector = new JWKSelector(matcher);
+        List<JWK> keys = selector.select(jwkSet.get());
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+
+        // Unknown key, the authorization server may have rotated its keys
+        log.debug("No JWK matches key id: {}, will refresh the JWK set", jwt.getHeader().getKeyID());
+        return refreshOnUnknownKey().flatMapIterable(selector::select);
+    }
+
+    JWKSet current() {
+        return jwkSet.get();
+    }
+
+    private Mono<JWKSet> refreshOnUnknownKey() {
+        Mono<JWKSet> pending = pendingFetch.get();
+        if (pending == null && System.nanoTime() - lastFetchNanos.get() < minRefreshInterval.toNanos()) {
+            return Mono.just(jwkSet.get());
+        }
+        return (pending != null ? pending : fetch()).onErrorResume(ex -> Mono.just(jwkSet.get()));
+    }
+
+    private Mono<JWKSet> fetch() {
+        Mono<JWKSet> fetch = webClient.get().uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .map(this::parse)
+                .doOnNext(fetched -> {
+                    JWKSet previous = jwkSet.getAndSet(fetched);
+                    if (!previous.getKeys().equals(fetched.getKeys())) {
+                        log.info("JWK set refreshed from {}, key ids: {}", jwkSetUri, fetched.getKeys().stream().map(JWK::getKeyID).toList());
+                    }
+                })
+                .doOnError(ex -> log.warn("Failed to refresh the JWK set from {}, keeps the last known keys. Error message: {}", jwkSetUri, ex.getMessage()))
+                .doFinally(signal -> {
+                    lastFetchNanos.set(System.nanoTime());
+                    pendingFetch.set(null);
+                })
+                .cache();
+
+        return pendingFetch.compareAndSet(null, fetch) ? fetch : Mono.defer(() -> {
+            Mono<JWKSet> pending = pendingFetch.get();
+            return pending != null ? pending : Mono.just(jwkSet.get());
+        });
+    }
+
+    private JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException ex) {
+            throw new IllegalStateException("Invalid JWK set from " + jwkSetUri + ": " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rufusy.microservices.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * Replaces the JWT decoder Spring Boot creates from the issuer-uri, that discovers the issuer at startup
+ * and depends on the auth-server for its JWK set. The keys are prefetched and refreshed in the background,
+ * and already verified tokens are cached until they expire.
+ * <p>
+ * Picked up by the services that scan com.rufusy and imported by the gateway. The class condition is given by name,
+ * so the services without the OAuth2 resource server skip this configuration without loading it.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.security.oauth2.jwt.ReactiveJwtDecoder")
+@ConditionalOnExpression("'${spring.security.oauth2.resourceserver.jwt.issuer-uri:}' != ''")
+public class JwtDecoderConfig {
+
+    /**
+     * A plain WebClient, the auth-server is called by its host name and not through the load balancer.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public JwkSetCache jwkSetCache(
+            @Value("${app.jwt.jwkSetUri:${spring.security.oauth2.resourceserver.jwt.issuer-uri}/oauth2/jwks}") String jwkSetUri,
+            @Value("${app.jwt.jwkRefreshIntervalSeconds:300}") int refreshIntervalSeconds,
+            @Value("${app.jwt.jwkMinRefreshIntervalSeconds:10}") int minRefreshIntervalSeconds,
+            @Value("${app.jwt.jwkFetchTimeoutMs:2000}") int fetchTimeoutMs) {
+
+        return new JwkSetCache(
+                WebClient.create(),
+                jwkSetUri,
+                Duration.ofSeconds(refreshIntervalSeconds),
+                Duration.ofSeconds(minRefreshIntervalSeconds),
+                Duration.ofMillis(fetchTimeoutMs));
+    }
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${app.jwt.cacheMaxSize:10000}") long cacheMaxSize,
+            JwkSetCache jwkSetCache,
+            MeterRegistry meterRegistry) {
+
+        return CachingReactiveJwtDecoder.create(issuerUri, jwkSetCache, meterRegistry, cacheMaxSize);
+    }
+}
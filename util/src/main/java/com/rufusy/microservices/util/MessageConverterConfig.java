@@ -0,0 +1,19 @@
+package com.rufusy.microservices.util;
+
+import com.rufusy.microservices.api.codec.SmileMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+
+/**
+ * Spring Cloud Stream adds MessageConverter beans to the converters it selects from by the contentType header,
+ * so events published with contentType application/x-jackson-smile are decoded by every consumer, JSON stays the default.
+ */
+@Configuration
+public class MessageConverterConfig {
+
+    @Bean
+    public MessageConverter smileMessageConverter() {
+        return new SmileMessageConverter();
+    }
+}
@@ -0,0 +1,27 @@
+package com.rufusy.microservices.util;
+
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+
+/**
+ * Keyset pagination parameters of the GET APIs of the core services.
+ */
+public final class PageSizes {
+    private PageSizes() {
+    }
+
+    /**
+     * Validates the keyset pagination parameters and returns the page size to use, a limit of 0 gives the max page size.
+     * A limit above the max page size is rejected, instead of silently returning fewer items than asked for.
+     */
+    public static int pageSize(int afterId, int limit, int maxPageSize) {
+        if (afterId < 0) {
+            throw new InvalidInputException("Invalid afterId: " + afterId);
+        }
+
+        if (limit < 0 || limit > maxPageSize) {
+            throw new InvalidInputException("Invalid limit: " + limit + ", must be between 0 and " + maxPageSize);
+        }
+
+        return (limit == 0) ? maxPageSize : limit;
+    }
+}
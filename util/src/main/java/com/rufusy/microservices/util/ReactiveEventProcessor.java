@@ -0,0 +1,104 @@
+package com.rufusy.microservices.util;
+
+import com.rufusy.microservices.api.event.Event;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Processes a stream of events without blocking, used by the reactive message processors of the core services.
+ * <p>
+ * Events are spread over a fixed number of lanes by their key, each lane processes its events one at a time,
+ * so events with the same key, e.g. the same productId, are processed in the order they were received.
+ * An event that fails is retried with an exponential backoff, once the attempts are exhausted
+ * it is handed over to the dead letter handler and the processing continues with the next event.
+ * <p>
+ * The delivery is at-most-once: a reactive binding acknowledges a message when it is received, not when it has been
+ * processed. Events that are prefetched, in flight or waiting for a retry when the consumer stops or crashes are lost,
+ * they are neither redelivered nor sent to the dead letter handler.
+ */
+@Slf4j
+public class ReactiveEventProcessor<K, T> {
+    private final int concurrency;
+    private final int prefetch;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double backoffMultiplier;
+    private final Function<Event<K, T>, Mono<?>> handler;
+    private final BiConsumer<Event<K, T>, Throwable> deadLetterHandler;
+
+    public ReactiveEventProcessor(
+            int concurrency,
+            int prefetch,
+            int maxAttempts,
+            Duration initialBackoff,
+            Duration maxBackoff,
+            double backoffMultiplier,
+            Function<Event<K, T>, Mono<?>> handler,
+            BiConsumer<Event<K, T>, Throwable> deadLetterHandler) {
+
+        this.concurrency = concurrency;
+        this.prefetch = prefetch;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.backoffMultiplier = backoffMultiplier;
+        this.handler = handler;
+        this.deadLetterHandler = deadLetterHandler;
+    }
+
+    public Mono<Void> process(Flux<Event<K, T>> events) {
+        return events
+                .limitRate(prefetch)
+                .groupBy(event -> Math.floorMod(event.getKey() == null ? 0 : event.getKey().hashCode(), concurrency), prefetch)
+                // All lanes must be subscribed to at the same time, otherwise groupBy stalls
+                .flatMap(lane -> lane.concatMap(this::processEvent), concurrency)
+                .then();
+    }
+
+    private Mono<Void> processEvent(Event<K, T> event) {
+        return Mono.defer(() -> handler.apply(event))
+                .retryWhen(backoff(event))
+                .then()
+                .onErrorResume(ex -> {
+                    deadLetter(event, ex);
+                    return Mono.empty();
+                });
+    }
+
+    private Retry backoff(Event<K, T> event) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            long attempt = signal.totalRetries() + 1;
+            if (attempt >= maxAttempts) {
+                return Mono.error(signal.failure());
+            }
+
+            Duration delay = delay(attempt);
+            log.debug("Processing of {} event with key: {} failed, attempt {} of {}, will retry in {} ms: {}",
+                    event.getEventType(), event.getKey(), attempt, maxAttempts, delay.toMillis(), signal.failure().toString());
+            return Mono.delay(delay);
+        }));
+    }
+
+    private Duration delay(long attempt) {
+        double delayMillis = initialBackoff.toMillis() * Math.pow(backoffMultiplier, attempt - 1);
+        return Duration.ofMillis((long) Math.min(delayMillis, maxBackoff.toMillis()));
+    }
+
+    private void deadLetter(Event<K, T> event, Throwable ex) {
+        log.warn("Failed to process {} event with key: {} after {} attempts, will send it to the DLQ: {}",
+                event.getEventType(), event.getKey(), maxAttempts, ex.toString());
+        try {
+            deadLetterHandler.accept(event, ex);
+        } catch (RuntimeException dlqEx) {
+            log.error("Failed to send {} event with key: {} to the DLQ, the event is dropped: {}",
+                    event.getEventType(), event.getKey(), dlqEx.toString());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.rufusy.microservices.util;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachingReactiveJwtDecoderTests {
+    private static final String ISSUER = "http://auth-server:9999";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicReference<RSAKey> signingKey = new AtomicReference<>();
+    private final AtomicInteger jwkSetRequests = new AtomicInteger();
+
+    private DisposableServer authServer;
+    private JwkSetCache jwkSetCache;
+    private CachingReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        signingKey.set(new RSAKeyGenerator(2048).keyID("key-1").generate());
+
+        authServer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/oauth2/jwks", (request, response) -> {
+                    jwkSetRequests.incrementAndGet();
+                    return response.sendString(Mono.just(new JWKSet(signingKey.get().toPublicJWK()).toString()));
+                }))
+                .bindNow();
+
+        jwkSetCache = new JwkSetCache(
+                WebClient.create(),
+                "http://localhost:" + authServer.port() + "/oauth2/jwks",
+                Duration.ofHours(1),
+                Duration.ZERO,
+                Duration.ofSeconds(2));
+        decoder = CachingReactiveJwtDecoder.create(ISSUER, jwkSetCache, meterRegistry, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwkSetCache.stop();
+        authServer.disposeNow();
+    }
+
+    @Test
+    void repeatedTokenIsVerifiedOnce() throws JOSEException {
+        String token = token(Instant.now().plusSeconds(60));
+
+        StepVerifier.create(decoder.decode(token)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(decoder.decode(token)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, verifications("valid"));
+        assertEquals(1, jwkSetRequests.get());
+    }
+
+    @Test
+    void rotatedKeyIsFetchedOnDemand() throws JOSEException {
+        jwkSetCache.start();
+        StepVerifier.create(decoder.decode(token(Instant.now().plusSeconds(60)))).expectNextCount(1).verifyComplete();
+
+        signingKey.set(new RSAKeyGenerator(2048).keyID("key-2").generate());
+        StepVerifier.create(decoder.decode(token(Instant.now().plusSeconds(60)))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, verifications("valid"));
+        assertEquals("key-2", jwkSetCache.current().getKeys().get(0).getKeyID());
+    }
+
+    @Test
+    void expiredTokenIsRejected() throws JOSEException {
+        String token = token(Instant.now().minusSeconds(120));
+
+        StepVerifier.create(decoder.decode(token)).expectError().verify();
+        StepVerifier.create(decoder.decode(token)).expectError().verify();
+
+        assertEquals(2, verifications("invalid"));
+    }
+
+    private String token(Instant expiresAt) throws JOSEException {
+        RSAKey key = signingKey.get();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .issuer(ISSUER)
+                        .subject("writer")
+                        .claim("scope", "product:read")
+                        .issueTime(Date.from(expiresAt.minusSeconds(300)))
+                        .expirationTime(Date.from(expiresAt))
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private long verifications(String outcome) {
+        return meterRegistry.find("jwt.verify").tag("outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,90 @@
+package com.rufusy.microservices.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.pool.PoolAcquirePendingLimitException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpClientConnectorsTests {
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/slow", (request, response) ->
+                        response.sendString(Mono.just("ok").delayElement(Duration.ofMillis(200)))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    @Test
+    void requestsBeyondThePendingAcquireLimitFailFast() {
+        WebClient webClient = createWebClient(false);
+
+        // One request gets the connection, one waits for it, the third is rejected
+        StepVerifier.create(Flux.range(0, 3)
+                        .flatMap(i -> webClient.get().uri("/slow").retrieve().bodyToMono(String.class)
+                                .map(body -> "ok")
+                                .onErrorResume(ex -> hasCause(ex, PoolAcquirePendingLimitException.class),
+                                        ex -> Mono.just("rejected")))
+                        .collectList())
+                .assertNext(results -> {
+                    assertEquals(2, results.stream().filter("ok"::equals).count());
+                    assertEquals(1, results.stream().filter("rejected"::equals).count());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void h2cFallsBackToHttp11() {
+        StepVerifier.create(createWebClient(true).get().uri("/slow").retrieve().bodyToMono(String.class))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    private WebClient createWebClient(boolean h2c) {
+        HttpClientConnectors.Settings settings = new HttpClientConnectors.Settings(
+                1, 1,
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(30),
+                Duration.ofMinutes(5),
+                Duration.ofSeconds(30),
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(5),
+                h2c,
+                100);
+
+        connectionProvider = HttpClientConnectors.connectionProvider("test", settings);
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(HttpClientConnectors.connector(connectionProvider, settings))
+                .build();
+    }
+
+    private boolean hasCause(Throwable ex, Class<? extends Throwable> type) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
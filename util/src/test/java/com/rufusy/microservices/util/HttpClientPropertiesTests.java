@@ -0,0 +1,29 @@
+package com.rufusy.microservices.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpClientPropertiesTests {
+
+    @Test
+    void bindsTheAppHttpClientKeysOverTheDefaults() {
+        MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.of(
+                "app.httpClient.maxConnections", "20",
+                "app.httpClient.pendingAcquireTimeoutMs", "1500"));
+
+        HttpClientConnectors.Settings settings = new Binder(source)
+                .bindOrCreate("app.http-client", HttpClientProperties.class)
+                .settings();
+
+        assertEquals(20, settings.maxConnections());
+        assertEquals(Duration.ofMillis(1500), settings.pendingAcquireTimeout());
+        assertEquals(500, settings.pendingAcquireMaxCount());
+        assertEquals(Duration.ofSeconds(5), settings.responseTimeout());
+    }
+}
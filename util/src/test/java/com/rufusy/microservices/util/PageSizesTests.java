@@ -0,0 +1,24 @@
+package com.rufusy.microservices.util;
+
+import com.rufusy.microservices.api.exceptions.InvalidInputException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageSizesTests {
+
+    @Test
+    void limitOfZeroGivesTheMaxPageSize() {
+        assertEquals(1000, PageSizes.pageSize(0, 0, 1000));
+        assertEquals(50, PageSizes.pageSize(100, 50, 1000));
+        assertEquals(1000, PageSizes.pageSize(100, 1000, 1000));
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThrows(InvalidInputException.class, () -> PageSizes.pageSize(-1, 50, 1000));
+        assertThrows(InvalidInputException.class, () -> PageSizes.pageSize(0, -1, 1000));
+        assertThrows(InvalidInputException.class, () -> PageSizes.pageSize(0, 1001, 1000));
+    }
+}
@@ -0,0 +1,85 @@
+package com.rufusy.microservices.util;
+
+import com.rufusy.microservices.api.event.Event;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.rufusy.microservices.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveEventProcessorTests {
+    private final Map<Integer, List<Integer>> processed = new ConcurrentHashMap<>();
+    private final List<Event<Integer, Integer>> deadLetters = new CopyOnWriteArrayList<>();
+
+    @Test
+    void eventsWithTheSameKeyAreProcessedInOrder() {
+        ReactiveEventProcessor<Integer, Integer> processor = createProcessor(3, event ->
+                // Random delays make events with different keys complete out of order
+                Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(5)))
+                        .doOnNext(d -> processed.computeIfAbsent(event.getKey(), k -> new CopyOnWriteArrayList<>()).add(event.getData())));
+
+        Flux<Event<Integer, Integer>> events = Flux.range(0, 60).map(i -> new Event<>(CREATE, i % 6, i));
+
+        StepVerifier.create(processor.process(events)).verifyComplete();
+
+        for (int key = 0; key < 6; key++) {
+            int first = key;
+            assertEquals(List.of(first, first + 6, first + 12, first + 18, first + 24, first + 30, first + 36, first + 42, first + 48, first + 54),
+                    processed.get(key));
+        }
+        assertEquals(0, deadLetters.size());
+    }
+
+    @Test
+    void failedEventIsRetriedAndThenDeadLettered() {
+        AtomicInteger attempts = new AtomicInteger();
+        ReactiveEventProcessor<Integer, Integer> processor = createProcessor(3, event -> {
+            if (event.getData() == 1) {
+                attempts.incrementAndGet();
+                return Mono.error(new IllegalStateException("boom"));
+            }
+            processed.computeIfAbsent(event.getKey(), k -> new CopyOnWriteArrayList<>()).add(event.getData());
+            return Mono.empty();
+        });
+
+        Flux<Event<Integer, Integer>> events = Flux.just(new Event<>(CREATE, 1, 1), new Event<>(CREATE, 1, 2));
+
+        StepVerifier.create(processor.process(events)).verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(1, deadLetters.size());
+        assertEquals(1, deadLetters.get(0).getData());
+        // The stream continues with the next event after the failed one is dead lettered
+        assertEquals(List.of(2), processed.get(1));
+    }
+
+    @Test
+    void transientFailureIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        ReactiveEventProcessor<Integer, Integer> processor = createProcessor(3, event ->
+                attempts.incrementAndGet() < 3 ? Mono.error(new IllegalStateException("boom")) : Mono.empty());
+
+        StepVerifier.create(processor.process(Flux.just(new Event<>(CREATE, 1, 1)))).verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(0, deadLetters.size());
+    }
+
+    private ReactiveEventProcessor<Integer, Integer> createProcessor(
+            int maxAttempts, Function<Event<Integer, Integer>, Mono<?>> handler) {
+
+        return new ReactiveEventProcessor<>(4, 16, maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), 2.0,
+                handler, (event, ex) -> deadLetters.add(event));
+    }
+}